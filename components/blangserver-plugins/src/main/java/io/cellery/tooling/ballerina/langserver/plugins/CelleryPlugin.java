@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins;
+
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.prefetch.ImagePrefetcher;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.WorkspaceIndex;
+import org.ballerinalang.langserver.compiler.LSContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point to the Cellery subsystems used by the completion providers.
+ *
+ * The completion providers are loaded by the Ballerina language server for every Ballerina user. Therefore the
+ * subsystems (the image manager, the workspace index and the image prefetcher) together with
+ * their threads are only created when the first document importing the Cellery module is seen. The time taken and
+ * the threads and heap added by the initialization are logged once.
+ */
+public class CelleryPlugin {
+    private static final Logger logger = LoggerFactory.getLogger(CelleryPlugin.class);
+    private static volatile boolean isInitialized = false;
+
+    /**
+     * Handle a completion request on a document which imports the Cellery module.
+     *
+     * This initializes the Cellery subsystems if they were not used before, and starts prefetching the images used in
+     * the document in the background.
+     *
+     * @param context Language Server Context
+     */
+    public static void onCelleryDocument(LSContext context) {
+        initialize();
+        ImagePrefetcher.getInstance().prefetch(context);
+    }
+
+    /**
+     * Initialize the Cellery subsystems if they were not initialized before.
+     */
+    private static void initialize() {
+        if (!isInitialized) {
+            synchronized (CelleryPlugin.class) {
+                if (!isInitialized) {
+                    MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+                    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+                    long startTime = System.nanoTime();
+                    long startHeapUsage = memoryMXBean.getHeapMemoryUsage().getUsed();
+                    int startThreadCount = threadMXBean.getThreadCount();
+
+                    ImageManager.getInstance();
+                    WorkspaceIndex.getInstance();
+                    ImagePrefetcher.getInstance();
+
+                    long initializationTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                    long addedHeapUsage = memoryMXBean.getHeapMemoryUsage().getUsed() - startHeapUsage;
+                    int addedThreadCount = threadMXBean.getThreadCount() - startThreadCount;
+                    logger.info("Initialized Cellery Language Server plugins in " + initializationTime
+                            + " ms (threads: +" + addedThreadCount + ", heap: " + (addedHeapUsage >= 0 ? "+" : "")
+                            + addedHeapUsage / 1024 + " KB)");
+                    isInitialized = true;
+                }
+            }
+        }
+    }
+
+    private CelleryPlugin() {   // Prevent initialization
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency budget of a single completion request.
+ *
+ * Work which cannot be finished within the budget is left running in the background and the request is served with
+ * the information available. The budget is configured in milliseconds using the cellery.ls.completion.deadline system
+ * property and a non positive value disables it.
+ *
+ * Editors send a completion request on almost every keystroke, so a request is superseded as soon as a newer request
+ * for the same document starts. A superseded request has no remaining time, which makes its pending Cellery work
+ * return immediately instead of queuing up behind the newer request. A request is only tracked until it is served, so
+ * that closed documents do not keep their last request.
+ */
+public class CompletionDeadline {
+    private static final long budgetNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(Constants.SystemProperties.COMPLETION_DEADLINE, 50));
+    private static final Map<String, CompletionDeadline> latestDeadlines = new ConcurrentHashMap<>();
+
+    private final long deadlineNanos;
+    private final String fileUri;
+    private volatile boolean superseded;
+
+    private CompletionDeadline(long deadlineNanos, String fileUri) {
+        this.deadlineNanos = deadlineNanos;
+        this.fileUri = fileUri;
+        this.superseded = false;
+    }
+
+    /**
+     * Start the budget of a completion request on a document, superseding the previous request on the document.
+     *
+     * @param fileUri The URI of the document or null if the document is not known
+     * @return The deadline of the request
+     */
+    public static CompletionDeadline start(String fileUri) {
+        CompletionDeadline deadline = new CompletionDeadline(System.nanoTime() + budgetNanos, fileUri);
+        if (fileUri != null) {
+            CompletionDeadline previousDeadline = latestDeadlines.put(fileUri, deadline);
+            if (previousDeadline != null) {
+                previousDeadline.superseded = true;
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Get the time remaining until the deadline.
+     *
+     * @return The remaining time in nanoseconds, 0 if the request was superseded or {@link Long#MAX_VALUE} if the
+     *         budget is disabled
+     */
+    public long getRemainingNanos() {
+        if (superseded) {
+            return 0;
+        }
+        return budgetNanos > 0 ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Check whether a newer completion request had started on the same document.
+     *
+     * @return True if the result of the request is no longer needed by the editor
+     */
+    public boolean isSuperseded() {
+        return superseded;
+    }
+
+    /**
+     * Stop tracking the request once it is served.
+     *
+     * The request is only forgotten if it is still the latest request on the document, so that a newer request being
+     * served can still be superseded.
+     */
+    public void finish() {
+        if (fileUri != null) {
+            latestDeadlines.remove(fileUri, this);
+        }
+    }
+}
@@ -29,11 +29,19 @@ public class Constants {
     public static final String CELLERY_GET_REFERENCE_METHOD = "getReference";
 
     public static final String CELLERY_IMAGE_EXTENSION = ".zip";
-    public static final String LOCAL_REPO_DIRECTORY = System.getProperty("user.home") + File.separator + ".cellery"
-            + File.separator + "repo";
+    public static final String CELLERY_HOME_DIRECTORY = System.getProperty("user.home") + File.separator + ".cellery";
+    public static final String LOCAL_REPO_DIRECTORY = System.getProperty(SystemProperties.LOCAL_REPO_DIRECTORY,
+            CELLERY_HOME_DIRECTORY + File.separator + "repo");
+    public static final String TOOLING_DIRECTORY = System.getProperty(SystemProperties.TOOLING_DIRECTORY,
+            CELLERY_HOME_DIRECTORY + File.separator + "tooling");
+    public static final String SHARED_IMAGE_INDEX_FILE = TOOLING_DIRECTORY + File.separator + "image-index";
+    public static final String SNIPPETS_DIRECTORY = System.getProperty(SystemProperties.SNIPPETS_DIRECTORY,
+            TOOLING_DIRECTORY + File.separator + "snippets");
     public static final String CELLERY_IMAGE_REFERENCE_ZIP_ENTRY = "artifacts/ref/reference.json";
     public static final String CELLERY_IMAGE_METADATA_ZIP_ENTRY = "artifacts/cellery/metadata.json";
-    public static final String CELLERY_PULL_COMMAND = "cellery pull %s/%s:%s";
+    public static final String CELLERY_PULL_COMMAND = System.getProperty(SystemProperties.PULL_COMMAND,
+            "cellery pull %s/%s:%s");
+    public static final String REMOTE_IMAGE_URL = System.getProperty(SystemProperties.REMOTE_IMAGE_URL);
 
     /**
      * Ballerina types defined by Cellery.
@@ -56,6 +64,7 @@ public class Constants {
         public static final String CELL_BUILD_FUNCTION_LABE = CELLERY_PREFIX + "cell build function";
         public static final String COMPOSITE_BUILD_FUNCTION_LABEL = CELLERY_PREFIX + "composite build function";
         public static final String RUN_FUNCTION_LABEL = CELLERY_PREFIX + "run function";
+        public static final String USER_SNIPPET_LABEL_PREFIX = CELLERY_PREFIX;
     }
 
     /**
@@ -66,6 +75,46 @@ public class Constants {
         public static final String CELLERY_IMAGE = "Cellery Image";
     }
 
+    /**
+     * System properties which can be used for configuring the plugin.
+     */
+    public static class SystemProperties {
+        private static final String PREFIX = "cellery.ls.";
+        // Directory used as the local Cellery repository instead of ~/.cellery/repo
+        public static final String LOCAL_REPO_DIRECTORY = PREFIX + "repo";
+        // Directory used for the files shared among the language servers instead of ~/.cellery/tooling
+        public static final String TOOLING_DIRECTORY = PREFIX + "tooling.directory";
+        // Command used for pulling missing images (formatted with the org, name and version of the image)
+        public static final String PULL_COMMAND = PREFIX + "pull.command";
+        // URL of image zips in the registry used for fetching only the image metadata (formatted with the org, name
+        // and version of the image)
+        public static final String REMOTE_IMAGE_URL = PREFIX + "remote.image.url";
+        // Enables recording latency and allocation of Cellery completion requests
+        public static final String METRICS_ENABLED = PREFIX + "metrics.enabled";
+        // Number of recorded completion requests after which the metrics summary is logged (0 to never log it)
+        public static final String METRICS_REPORT_INTERVAL = PREFIX + "metrics.report.interval";
+        // Bytes a recorded completion request may allocate before a warning is logged (0 to disable the budget)
+        public static final String METRICS_ALLOCATION_BUDGET = PREFIX + "metrics.allocation.budget";
+        // Milliseconds a completion request may spend on Cellery work before returning the available completions
+        public static final String COMPLETION_DEADLINE = PREFIX + "completion.deadline";
+        // Milliseconds to wait before checking again whether an image file being written to the local repository
+        // had settled
+        public static final String IMAGE_SETTLE_WINDOW = PREFIX + "image.settle.window";
+        // Milliseconds for which an image checked against the local repository is considered fresh (0 to always check)
+        public static final String IMAGE_FRESHNESS_WINDOW = PREFIX + "image.freshness.window";
+        // Keeps the reference and metadata JSON of images outside the Java heap and decodes them only when needed
+        public static final String IMAGE_OFF_HEAP_STORAGE = PREFIX + "image.off.heap.storage";
+        // Milliseconds between the background scans of the local repository for new and changed images
+        public static final String LOCAL_REPO_SCAN_INTERVAL = PREFIX + "repo.scan.interval";
+        // Directory from which user snippets (*.snippet) are loaded instead of ~/.cellery/tooling/snippets
+        public static final String SNIPPETS_DIRECTORY = PREFIX + "snippets.directory";
+        // Path of the file to which the spans of requests are written in the Chrome trace event format (tracing is
+        // disabled if not set)
+        public static final String TRACE_FILE = PREFIX + "trace.file";
+        // Number of events written to the trace file before it is rotated
+        public static final String TRACE_FILE_MAX_EVENTS = PREFIX + "trace.file.max.events";
+    }
+
     /**
      * Enum for Image kinds supported by Cellery.
      */
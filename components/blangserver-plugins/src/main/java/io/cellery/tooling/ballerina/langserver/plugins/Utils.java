@@ -18,8 +18,13 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins;
 
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
 import org.ballerinalang.langserver.common.utils.CommonUtil;
+import org.ballerinalang.langserver.compiler.DocumentServiceKeys;
 import org.ballerinalang.langserver.compiler.LSContext;
+import org.ballerinalang.langserver.compiler.workspace.WorkspaceDocumentException;
+import org.ballerinalang.langserver.compiler.workspace.WorkspaceDocumentManager;
+import org.eclipse.lsp4j.Position;
 import org.wso2.ballerinalang.compiler.semantics.model.symbols.BTypeSymbol;
 import org.wso2.ballerinalang.compiler.semantics.model.types.BMapType;
 import org.wso2.ballerinalang.compiler.semantics.model.types.BType;
@@ -31,12 +36,18 @@ import org.wso2.ballerinalang.compiler.tree.expressions.BLangRecordLiteral;
 import org.wso2.ballerinalang.compiler.tree.expressions.BLangSimpleVarRef;
 import org.wso2.ballerinalang.compiler.tree.expressions.BLangTypeConversionExpr;
 
+import java.net.URI;
+import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Cellery Lang Server plugin utilities.
  */
 public class Utils {
+    private static final Pattern RECORD_FIELD_NAME_PATTERN = Pattern.compile("(\\w+)\\s*:\\s*$");
+    private static final int RECORD_FIELD_NAME_LOOK_BEHIND = 256;
 
     /**
      * Check whether cellery import was added.
@@ -45,6 +56,7 @@ public class Utils {
      * @return True if the cellery import is present
      */
     public static boolean hasCelleryImport(LSContext context) {
+        Tracer.Span span = Tracer.start("hasCelleryImport");
         boolean hasCelleryImport = false;
         for (BLangImportPackage anImport : CommonUtil.getCurrentFileImports(context)) {
             if (anImport.getPackageName().size() == 1) {
@@ -55,9 +67,92 @@ public class Utils {
                 }
             }
         }
+        span.end();
         return hasCelleryImport;
     }
 
+    /**
+     * Get the latest content of the current document including the unsaved changes.
+     *
+     * @param context Language Server Context
+     * @return The content of the document or null if the context does not have a document
+     * @throws WorkspaceDocumentException If reading the document failed
+     */
+    public static String getDocumentContent(LSContext context) throws WorkspaceDocumentException {
+        String fileUri = context.get(DocumentServiceKeys.FILE_URI_KEY);
+        WorkspaceDocumentManager documentManager = context.get(DocumentServiceKeys.DOC_MANAGER_KEY);
+        String content = null;
+        if (fileUri != null && documentManager != null) {
+            content = documentManager.getFileContent(Paths.get(URI.create(fileUri)));
+        }
+        return content;
+    }
+
+    /**
+     * Get the part of a line of a document before the cursor.
+     *
+     * @param content The content of the document
+     * @param position The position of the cursor
+     * @return The part of the line before the cursor or null if the position is not in the document
+     */
+    public static String getLinePrefix(String content, Position position) {
+        int cursorOffset = getOffset(content, position);
+        if (cursorOffset < 0) {
+            return null;
+        }
+        return content.substring(content.lastIndexOf('\n', cursorOffset - 1) + 1, cursorOffset);
+    }
+
+    /**
+     * Get the name of the record field of which the record literal value encloses a position in a document.
+     *
+     * For example the field name is "cells" for a position inside "cells: { hello: | }".
+     *
+     * @param content The content of the document
+     * @param position The position in the document
+     * @return The name of the field or null if the enclosing record literal is not the value of a field
+     */
+    public static String getEnclosingRecordFieldName(String content, Position position) {
+        int cursorOffset = getOffset(content, position);
+        int depth = 0;
+        for (int i = cursorOffset - 1; i >= 0; i--) {
+            char character = content.charAt(i);
+            if (character == '}') {
+                depth++;
+            } else if (character == '{') {
+                if (depth == 0) {
+                    Matcher matcher = RECORD_FIELD_NAME_PATTERN.matcher(content.substring(
+                            Math.max(0, i - RECORD_FIELD_NAME_LOOK_BEHIND), i));
+                    return matcher.find() ? matcher.group(1) : null;
+                }
+                depth--;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the offset of a position in a document.
+     *
+     * @param content The content of the document
+     * @param position The position in the document
+     * @return The offset or -1 if the position is not in the document
+     */
+    private static int getOffset(String content, Position position) {
+        int lineStartOffset = 0;
+        for (int line = 0; line < position.getLine(); line++) {
+            lineStartOffset = content.indexOf('\n', lineStartOffset) + 1;
+            if (lineStartOffset == 0) {
+                return -1;
+            }
+        }
+        int offset = lineStartOffset + position.getCharacter();
+        if (offset > content.length() || content.substring(lineStartOffset, offset).indexOf('\n') >= 0) {
+            return -1;
+        }
+        return offset;
+    }
+
     /**
      * Check if the ballerina type is equal to the Cellery record type name.
      *
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.analyzer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import io.cellery.tooling.ballerina.langserver.plugins.diagnostics.CelleryDiagnosticsProvider;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CellerySourceScanner;
+import org.eclipse.lsp4j.Diagnostic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line analyzer of Cellery sources.
+ *
+ * This analyzes all the Cellery Ballerina sources in a set of directories in parallel using the Cellery source scanner
+ * and diagnostics, and prints the unresolved images, missing reference keys and component dependencies of each source
+ * as JSON. Only the images referred by the sources are read, directly from the local repository. The repository is not
+ * scanned, the shared image index is not written and images are never pulled.
+ *
+ * Usage: java -cp &lt;classpath&gt; io.cellery.tooling.ballerina.langserver.plugins.analyzer.CelleryAnalyzer
+ * &lt;directory or file&gt;...
+ *
+ * The process exits with 1 if any problem was found and with 2 if the sources could not be read.
+ */
+public class CelleryAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(CelleryAnalyzer.class);
+    private static final String BALLERINA_SOURCE_EXTENSION = ".bal";
+    private static final String CELLERY_MODULE = Constants.CELLERY_PACKAGE_ORG_NAME + "/"
+            + Constants.CELLERY_PACKAGE_NAME;
+    private static final int EXIT_CODE_PROBLEMS_FOUND = 1;
+    private static final int EXIT_CODE_ERROR = 2;
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: " + CelleryAnalyzer.class.getName() + " <directory or file>...");
+            System.exit(EXIT_CODE_ERROR);
+        }
+        Report report;
+        try {
+            List<Path> sources = new ArrayList<>();
+            for (String arg : args) {
+                sources.addAll(findSources(Paths.get(arg)));
+            }
+            report = analyze(sources);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to analyze Cellery sources", e);
+            System.exit(EXIT_CODE_ERROR);
+            return;
+        }
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        System.out.println(gson.toJson(report));
+        System.exit(report.problemCount > 0 ? EXIT_CODE_PROBLEMS_FOUND : 0);
+    }
+
+    /**
+     * Find the Ballerina sources in a directory tree.
+     *
+     * @param path The directory or the source file
+     * @return The Ballerina source files
+     * @throws IOException If the directory tree cannot be walked
+     */
+    private static List<Path> findSources(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(sourcePath -> sourcePath.toString().endsWith(BALLERINA_SOURCE_EXTENSION))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Analyze a set of Ballerina sources in parallel.
+     *
+     * All the images referred by the sources are read from the local repository in parallel before the sources are
+     * validated, so that the validation only reads images from memory.
+     *
+     * @param sources The Ballerina source files
+     * @return The report of the analysis
+     */
+    private static Report analyze(Collection<Path> sources) {
+        List<ScannedSource> scannedSources = sources.parallelStream()
+                .map(CelleryAnalyzer::scan)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(scannedSource -> scannedSource.path.toString()))
+                .collect(Collectors.toList());
+
+        Set<String> imageFQNs = scannedSources.stream()
+                .flatMap(scannedSource -> scannedSource.scanResult.getImageLiterals().stream())
+                .map(CellerySourceScanner.ImageLiteral::getImageFQN)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<String, Image> images = new ConcurrentHashMap<>();
+        imageFQNs.parallelStream().forEach(imageFQN -> {
+            Image image = ImageManager.readLocalImage(imageFQN);
+            if (image != null) {
+                images.put(imageFQN, image);
+            }
+        });
+
+        Report report = new Report();
+        report.files = scannedSources.parallelStream()
+                .map(scannedSource -> analyze(scannedSource, images))
+                .collect(Collectors.toList());
+        for (String imageFQN : imageFQNs) {
+            if (!images.containsKey(imageFQN)) {
+                report.unresolvedImages.add(imageFQN);
+            }
+        }
+        for (FileReport fileReport : report.files) {
+            report.problemCount += fileReport.problems.size();
+        }
+        return report;
+    }
+
+    /**
+     * Analyze a single Ballerina source.
+     *
+     * @param scannedSource The scanned source
+     * @param images The images read from the local repository with the fully qualified names as keys
+     * @return The report of the source
+     */
+    private static FileReport analyze(ScannedSource scannedSource, Map<String, Image> images) {
+        FileReport fileReport = new FileReport();
+        fileReport.file = scannedSource.path.toString();
+        fileReport.dependencies = new TreeMap<>();
+        for (Map.Entry<String, Map<String, String>> componentEntry
+                : scannedSource.scanResult.getComponentDependencies().entrySet()) {
+            fileReport.dependencies.put(componentEntry.getKey(), new TreeMap<>(componentEntry.getValue()));
+        }
+        List<Diagnostic> diagnostics = CelleryDiagnosticsProvider.getInstance()
+                .validate(scannedSource.content, images::get);
+        for (Diagnostic diagnostic : diagnostics) {
+            Problem problem = new Problem();
+            problem.type = diagnostic.getCode();
+            problem.line = diagnostic.getRange().getStart().getLine() + 1;
+            problem.column = diagnostic.getRange().getStart().getCharacter() + 1;
+            problem.message = diagnostic.getMessage();
+            fileReport.problems.add(problem);
+        }
+        return fileReport;
+    }
+
+    /**
+     * Read and scan a Ballerina source.
+     *
+     * @param source The source file
+     * @return The scanned source or null if the source does not import the Cellery module
+     */
+    private static ScannedSource scan(Path source) {
+        String content;
+        try {
+            content = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + source, e);
+        }
+        return content.contains(CELLERY_MODULE) ? new ScannedSource(source, content) : null;
+    }
+
+    /**
+     * Ballerina source with the Cellery information found by the scanner.
+     */
+    private static class ScannedSource {
+        private final Path path;
+        private final String content;
+        private final CellerySourceScanner.ScanResult scanResult;
+
+        private ScannedSource(Path path, String content) {
+            this.path = path;
+            this.content = content;
+            this.scanResult = CellerySourceScanner.scan(content);
+        }
+    }
+
+    /**
+     * Analysis report of a set of sources.
+     */
+    private static class Report {
+        private List<FileReport> files = new ArrayList<>();
+        private Set<String> unresolvedImages = new TreeSet<>();
+        private int problemCount;
+    }
+
+    /**
+     * Analysis report of a single source.
+     */
+    private static class FileReport {
+        private String file;
+        private Map<String, Map<String, String>> dependencies;
+        private List<Problem> problems = new ArrayList<>();
+    }
+
+    /**
+     * Problem found in a source.
+     */
+    private static class Problem {
+        private String type;
+        private int line;
+        private int column;
+        private String message;
+    }
+
+    private CelleryAnalyzer() {    // Prevent initialization
+    }
+}
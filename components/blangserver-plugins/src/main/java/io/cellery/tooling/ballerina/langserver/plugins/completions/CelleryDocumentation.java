@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.completions;
+
+import io.cellery.tooling.ballerina.langserver.plugins.images.ComponentMetadata;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import io.cellery.tooling.ballerina.langserver.plugins.images.Metadata;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Markdown documentation of Cellery Images shown in completions.
+ *
+ * Image documentation is generated once for each extracted metadata of an image and is served from memory afterwards.
+ */
+public class CelleryDocumentation {
+    private static final Map<Image, CachedDocumentation> imageDocumentations =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Get the documentation of an image.
+     *
+     * @param image The image of which the documentation should be generated
+     * @return The markdown documentation
+     */
+    public static String getImageDocumentation(Image image) {
+        Metadata metadata = image.getMetadata();
+        CachedDocumentation cachedDocumentation = imageDocumentations.get(image);
+        if (cachedDocumentation == null || cachedDocumentation.metadata != metadata) {
+            cachedDocumentation = new CachedDocumentation(metadata, generateImageDocumentation(image.getFQN(),
+                    metadata));
+            imageDocumentations.put(image, cachedDocumentation);
+        }
+        return cachedDocumentation.documentation;
+    }
+
+    /**
+     * Get the documentation of a reference key of an image.
+     *
+     * @param image The image to which the reference key belongs
+     * @param key The reference key
+     * @param value The value of the reference key in the snapshot of the image used by the caller
+     * @return The markdown documentation
+     */
+    public static String getReferenceKeyDocumentation(Image image, String key, String value) {
+        return "**Cellery Image Reference Key**"
+                + "\n\n**Image:** " + image.getFQN()
+                + "\n\n**Key:** " + key
+                + "\n\n**Value:** " + value;
+    }
+
+    /**
+     * Generate the documentation of an image.
+     *
+     * @param imageFQN The fully qualified name of the image
+     * @param metadata The metadata of the image
+     * @return The markdown documentation
+     */
+    private static String generateImageDocumentation(String imageFQN, Metadata metadata) {
+        String autoScalingStatus = null;
+        if (metadata.isZeroScalingRequired()) {
+            autoScalingStatus = "Zero Scaling";
+        }
+        if (metadata.isAutoScalingRequired()) {
+            autoScalingStatus = (autoScalingStatus == null ? "HPA" : autoScalingStatus + " & HPA");
+        }
+        if (autoScalingStatus == null) {
+            autoScalingStatus = "Disabled";
+        }
+
+        Set<String> ingressTypes = new LinkedHashSet<>();
+        for (ComponentMetadata componentMetadata : metadata.getComponents().values()) {
+            ingressTypes.addAll(componentMetadata.getIngressTypes());
+        }
+
+        return "**Cellery Image**"
+                + "\n\n**Image:** " + imageFQN
+                + "\n\n**Components:** " + String.join(", ", metadata.getComponents().keySet())
+                + "\n\n**Ingress Types:** " + String.join(", ", ingressTypes)
+                + "\n\n**Kind:** " + metadata.getKind()
+                + "\n\n**Auto-Scaling:** " + autoScalingStatus;
+    }
+
+    /**
+     * Documentation generated for a specific metadata of an image.
+     */
+    private static class CachedDocumentation {
+        private final Metadata metadata;
+        private final String documentation;
+
+        private CachedDocumentation(Metadata metadata, String documentation) {
+            this.metadata = metadata;
+            this.documentation = documentation;
+        }
+    }
+
+    private CelleryDocumentation() {    // Prevent initialization
+    }
+}
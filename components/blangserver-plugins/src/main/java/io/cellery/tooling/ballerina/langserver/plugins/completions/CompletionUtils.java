@@ -18,42 +18,108 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.completions;
 
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
 import io.cellery.tooling.ballerina.langserver.plugins.Constants;
-import io.cellery.tooling.ballerina.langserver.plugins.images.ComponentMetadata;
 import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
 import io.cellery.tooling.ballerina.langserver.plugins.visitor.CelleryKeys;
 import io.cellery.tooling.ballerina.langserver.plugins.visitor.CelleryTreeVisitor;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.WorkspaceIndex;
 import org.ballerinalang.langserver.compiler.DocumentServiceKeys;
 import org.ballerinalang.langserver.compiler.LSContext;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.MarkupContent;
-import org.wso2.ballerinalang.compiler.tree.BLangNode;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextEdit;
+import org.wso2.ballerinalang.compiler.tree.BLangPackage;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 /**
  * Cellery Lang Server plugin Completions related utilities.
  */
 public class CompletionUtils {
+    private static final int SORT_TEXT_LENGTH = 6;
+    private static final String SORT_TEXT_PADDING = "000000";
+    private static final ExecutorService executor = Executors.newCachedThreadPool((runnable) -> {
+        Thread thread = new Thread(runnable, "cellery-completions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Compute Cellery completions in the background while the Ballerina completions are being computed.
+     *
+     * The task must not access the language server context, as the context is not thread safe.
+     *
+     * @param task The task computing the Cellery completions
+     * @return The future of the Cellery completions
+     */
+    public static Future<List<CompletionItem>> submit(Callable<List<CompletionItem>> task) {
+        return executor.submit(task);
+    }
 
     /**
      * Add Cellery specific information to the language server context.
+     *
+     * The module level information of all the files in the module is taken from the workspace index, which is updated
+     * with the files changed since the last request. Images which are not ready before the deadline of the request are
+     * left to be resolved in the background.
+     *
+     * Requests on different documents run concurrently, as the workspace index synchronizes the updates of each module
+     * by itself. The visit of the current file is skipped if the request is superseded by a newer request on the same
+     * document while the index is being updated, in which case the Cellery information is not added to the context.
      */
-    public static synchronized void addCelleryInfoToContext(LSContext context) {
+    public static void addCelleryInfoToContext(LSContext context) {
         if (context.get(CelleryKeys.COMPONENTS) == null) {  // Ensuring that Cellery visitor is used only once
-            BLangNode packageNode = context.get(DocumentServiceKeys.CURRENT_BLANG_PACKAGE_CONTEXT_KEY);
-            CelleryTreeVisitor celleryTreeVisitor = new CelleryTreeVisitor(context);
+            BLangPackage packageNode = context.get(DocumentServiceKeys.CURRENT_BLANG_PACKAGE_CONTEXT_KEY);
+            String moduleKey = getModuleKey(context, packageNode);
+            WorkspaceIndex workspaceIndex = WorkspaceIndex.getInstance();
+            CompletionDeadline deadline = context.get(CelleryKeys.COMPLETION_DEADLINE);
+            Tracer.Span indexSpan = Tracer.start("WorkspaceIndex.update", moduleKey);
+            workspaceIndex.update(moduleKey, packageNode, deadline);
+            indexSpan.end();
+            if (deadline != null && deadline.isSuperseded()) {
+                return;
+            }
+            Tracer.Span visitorSpan = Tracer.start("CelleryTreeVisitor");
+            CelleryTreeVisitor celleryTreeVisitor = new CelleryTreeVisitor(context,
+                    workspaceIndex.getComponents(moduleKey), workspaceIndex.getImageReferences(moduleKey), deadline);
             packageNode.accept(celleryTreeVisitor);
+            visitorSpan.end();
         }
     }
 
+    /**
+     * Get the key uniquely identifying the module of the current file in the workspace.
+     *
+     * @param context Language Server Context
+     * @param packageNode The compiled package of the current file
+     * @return The module key
+     */
+    private static String getModuleKey(LSContext context, BLangPackage packageNode) {
+        String moduleKey = context.get(DocumentServiceKeys.SOURCE_ROOT_KEY) + File.separator + packageNode.packageID;
+        if (packageNode.packageID.isUnnamed) {
+            // Single files which are not part of a project are compiled as separate unnamed modules
+            moduleKey = moduleKey + File.separator + context.get(DocumentServiceKeys.FILE_NAME_KEY);
+        }
+        return moduleKey;
+    }
+
     /**
      * Generate ingress keys completion items list.
      *
@@ -61,18 +127,17 @@ public class CompletionUtils {
      * @return {@link List<CompletionItem>} List of calculated Completion Items
      */
     public static List<CompletionItem> generateReferenceKeysCompletions(Image image) {
-        List<CompletionItem> completions = new ArrayList<>(image.getReferenceKeys().size());
-        String imageFQN = image.getFQN();
-        for (Map.Entry<String, String> reference : image.getReferenceKeys().entrySet()) {
+        Map<String, String> referenceKeys = image.getReferenceKeys();
+        List<CompletionItem> completions = new ArrayList<>(referenceKeys.size());
+        for (Map.Entry<String, String> reference : referenceKeys.entrySet()) {
+            String invocation = "get(\"" + reference.getKey() + "\")";
             CompletionItem completionItem = new CompletionItem();
-            completionItem.setInsertText("get(\"" + reference.getKey() + "\")");
-            completionItem.setLabel("get(\"" + reference.getKey() + "\")");
+            completionItem.setInsertText(invocation);
+            completionItem.setLabel(invocation);
             MarkupContent documentation = new MarkupContent();
             documentation.setKind("markdown");
-            documentation.setValue("**Cellery Image Reference Key**"
-                    + "\n\n**Image:** " + imageFQN
-                    + "\n\n**Key:** " + reference.getKey()
-                    + "\n\n**Value:** " + reference.getValue());
+            documentation.setValue(CelleryDocumentation.getReferenceKeyDocumentation(image, reference.getKey(),
+                    reference.getValue()));
             completionItem.setDocumentation(documentation);
             completionItem.setDetail(Constants.CompletionType.CELLERY_REFERENCE_KEY);
             completionItem.setKind(CompletionItemKind.Function);
@@ -81,9 +146,93 @@ public class CompletionUtils {
         return completions;
     }
 
+    /**
+     * Generate reference key completions for the string argument of get("...") on a reference.
+     *
+     * Only the keys starting with the typed prefix are looked up from the reference key index of the image.
+     *
+     * @param image The image of which the reference keys should be completed
+     * @param snapshot The snapshot of the image from which the keys should be taken
+     * @param prefix The part of the key already typed by the user
+     * @param prefixRange The range of the typed prefix which is replaced by the selected key
+     * @return {@link List<CompletionItem>} List of calculated Completion Items
+     */
+    public static List<CompletionItem> generateReferenceKeyStringCompletions(Image image, Image.Snapshot snapshot,
+                                                                             String prefix, Range prefixRange) {
+        List<String> keys = snapshot.getReferenceKeyIndex().getKeysWithPrefix(prefix);
+        List<CompletionItem> completions = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            CompletionItem completionItem = new CompletionItem();
+            completionItem.setLabel(key);
+            completionItem.setTextEdit(new TextEdit(prefixRange, key));
+            MarkupContent documentation = new MarkupContent();
+            documentation.setKind("markdown");
+            documentation.setValue(CelleryDocumentation.getReferenceKeyDocumentation(image, key,
+                    snapshot.getReferenceKeys().get(key)));
+            completionItem.setDocumentation(documentation);
+            completionItem.setDetail(Constants.CompletionType.CELLERY_REFERENCE_KEY);
+            completionItem.setKind(CompletionItemKind.Property);
+            completions.add(completionItem);
+        }
+        return completions;
+    }
+
+    /**
+     * Order images by their relevance to a document.
+     *
+     * Images of the organizations the document already depends on come first, and the versions of each image are
+     * ordered from the latest to the oldest.
+     *
+     * @param images The images to be ordered
+     * @param documentDependencies The image FQNs the document already depends on
+     * @return The ordered images
+     */
+    public static List<Image> rankImages(Collection<Image> images, Collection<String> documentDependencies) {
+        Set<String> dependencyOrgs = new HashSet<>();
+        for (String imageFQN : documentDependencies) {
+            dependencyOrgs.add(imageFQN.substring(0, imageFQN.indexOf('/')));
+        }
+        // Versions are split once for each image instead of for each comparison made while sorting
+        Map<String, String[]> versionsParts = new HashMap<>();
+        for (Image image : images) {
+            versionsParts.computeIfAbsent(image.getVersion(), (version) -> version.split("[.-]"));
+        }
+        List<Image> rankedImages = new ArrayList<>(images);
+        rankedImages.sort(Comparator.comparing((Image image) -> !dependencyOrgs.contains(image.getOrg()))
+                .thenComparing(Image::getOrg)
+                .thenComparing(Image::getName)
+                .thenComparing((image) -> versionsParts.get(image.getVersion()),
+                        (versionParts, otherVersionParts) -> compareVersions(otherVersionParts, versionParts)));
+        return rankedImages;
+    }
+
+    /**
+     * Compare two image versions numerically part by part.
+     *
+     * @param versionParts The parts of the first version
+     * @param otherVersionParts The parts of the second version
+     * @return Negative, zero or positive if the first version is older, equal or newer than the second version
+     */
+    private static int compareVersions(String[] versionParts, String[] otherVersionParts) {
+        for (int i = 0; i < Math.min(versionParts.length, otherVersionParts.length); i++) {
+            int result;
+            if (versionParts[i].matches("\\d{1,9}") && otherVersionParts[i].matches("\\d{1,9}")) {
+                result = Integer.compare(Integer.parseInt(versionParts[i]), Integer.parseInt(otherVersionParts[i]));
+            } else {
+                result = versionParts[i].compareTo(otherVersionParts[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(versionParts.length, otherVersionParts.length);
+    }
+
     /**
      * Generate image completions.
      *
+     * The completions are sorted in the order of the images collection.
+     *
      * @param images The images list for which the ingress key completions should be generated
      * @param insertTextMapFunction Function to map insert text from image
      * @return {@link List<CompletionItem>} List of calculated Completion Items
@@ -92,32 +241,13 @@ public class CompletionUtils {
                                                                       Function<Image, String> insertTextMapFunction) {
         List<CompletionItem> completions = new ArrayList<>(images.size());
         for (Image image : images) {
-            String autoScalingStatus = null;
-            if (image.getMetadata().isZeroScalingRequired()) {
-                autoScalingStatus = "Zero Scaling";
-            }
-            if (image.getMetadata().isAutoScalingRequired()) {
-                autoScalingStatus = (autoScalingStatus == null ? "HPA" : autoScalingStatus + " & HPA");
-            }
-            if (autoScalingStatus == null) {
-                autoScalingStatus = "Disabled";
-            }
-
-            Set<String> ingressTypes = new HashSet<>();
-            for (ComponentMetadata componentMetadata : image.getMetadata().getComponents().values()) {
-                ingressTypes.addAll(componentMetadata.getIngressTypes());
-            }
-
             CompletionItem completionItem = new CompletionItem();
             completionItem.setInsertText(insertTextMapFunction.apply(image));
             completionItem.setLabel(image.getFQN());
+            completionItem.setSortText(toSortText(completions.size()));
             MarkupContent documentation = new MarkupContent();
             documentation.setKind("markdown");
-            documentation.setValue("**Cellery Image**"
-                    + "\n\n**Image:** " + image.getFQN()
-                    + "\n\n**Ingress Types:** " + String.join(", ", ingressTypes)
-                    + "\n\n**Kind:** " + image.getMetadata().getKind()
-                    + "\n\n**Auto-Scaling:** " + autoScalingStatus);
+            documentation.setValue(CelleryDocumentation.getImageDocumentation(image));
             completionItem.setDocumentation(documentation);
             completionItem.setDetail(Constants.CompletionType.CELLERY_IMAGE);
             completionItem.setKind(CompletionItemKind.Text);
@@ -126,6 +256,59 @@ public class CompletionUtils {
         return completions;
     }
 
+    /**
+     * Get the sort text of a completion at a position in a sorted completions list.
+     *
+     * @param position The position of the completion
+     * @return The position padded with zeros to six digits
+     */
+    private static String toSortText(int position) {
+        String digits = Integer.toString(position);
+        return digits.length() >= SORT_TEXT_LENGTH
+                ? digits
+                : SORT_TEXT_PADDING.substring(digits.length()) + digits;
+    }
+
+    /**
+     * Copy a completion item.
+     *
+     * Cached completion items are copied before being returned, as the items of a response may be modified by the
+     * language server.
+     *
+     * @param completionItem The completion item to be copied
+     * @return The copy
+     */
+    public static CompletionItem copyCompletionItem(CompletionItem completionItem) {
+        CompletionItem copy = new CompletionItem(completionItem.getLabel());
+        copy.setKind(completionItem.getKind());
+        copy.setDetail(completionItem.getDetail());
+        copy.setDocumentation(completionItem.getDocumentation());
+        copy.setSortText(completionItem.getSortText());
+        copy.setFilterText(completionItem.getFilterText());
+        copy.setInsertText(completionItem.getInsertText());
+        copy.setInsertTextFormat(completionItem.getInsertTextFormat());
+        copy.setTextEdit(completionItem.getTextEdit());
+        copy.setAdditionalTextEdits(completionItem.getAdditionalTextEdits());
+        copy.setCommitCharacters(completionItem.getCommitCharacters());
+        copy.setCommand(completionItem.getCommand());
+        copy.setData(completionItem.getData());
+        return copy;
+    }
+
+    /**
+     * Copy a list of completion items.
+     *
+     * @param completionItems The completion items to be copied
+     * @return The copies
+     */
+    public static List<CompletionItem> copyCompletionItems(List<CompletionItem> completionItems) {
+        List<CompletionItem> copies = new ArrayList<>(completionItems.size());
+        for (CompletionItem completionItem : completionItems) {
+            copies.add(copyCompletionItem(completionItem));
+        }
+        return copies;
+    }
+
     private CompletionUtils() {     // Prevent initialization
     }
 }
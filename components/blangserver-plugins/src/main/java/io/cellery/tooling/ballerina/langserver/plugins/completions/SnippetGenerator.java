@@ -19,162 +19,207 @@
 package io.cellery.tooling.ballerina.langserver.plugins.completions;
 
 import io.cellery.tooling.ballerina.langserver.plugins.Constants;
-import io.cellery.tooling.ballerina.langserver.plugins.visitor.Component;
-import org.ballerinalang.langserver.SnippetBlock;
-import org.ballerinalang.langserver.completions.util.ItemResolverConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Cellery Snippet Generator.
+ *
+ * Snippets are compiled into {@link SnippetTemplate}s once. User snippets are loaded from the files with the
+ * ".snippet" extension in the snippets directory (~/.cellery/tooling/snippets by default) when the first snippet is
+ * requested, and are loaded again whenever the last modified time of the directory changes (when snippet files are
+ * added, removed, renamed or saved by replacing them). The name of the file is used as the label of the snippet.
  */
 public class SnippetGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(SnippetGenerator.class);
+    private static final String USER_SNIPPET_EXTENSION = ".snippet";
+
+    private static final SnippetTemplate COMPONENT_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.COMPONENT_SNIPPET_LABEL,
+            "cellery:Component ${3:component} = {\n" +
+                        "\tname: \"${1:component-name}\",\n" +
+                        "\tsrc: {\n" +
+                            "\t\timage: \"${2:image}\"\n" +
+                        "\t}\n" +
+                    "};");
+    private static final SnippetTemplate CELL_IMAGE_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.CELL_SNIPPET_LABEL,
+            "cellery:CellImage ${1:cell} = {\n" +
+                        "\tcomponents: {{components}}\n" +
+                    "};");
+    private static final SnippetTemplate COMPOSITE_IMAGE_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.COMPOSITE_SNIPPET_LABEL,
+            "cellery:Composite ${1:composite} = {\n" +
+                        "\tcomponents: {{components}}\n" +
+                    "};");
+    private static final SnippetTemplate CELL_BUILD_FUNCTION_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.CELL_BUILD_FUNCTION_LABE,
+            "public function build(cellery:ImageName iName) returns error? {"
+                    + "{{newline}}\tcellery:Component ${3:component} = {"
+                    + "{{newline}}\t\tname: \"${1:component-name}\","
+                    + "{{newline}}\t\tsrc: {"
+                    + "{{newline}}\t\t\timage: \"${2:image}\"\n"
+                    + "{{newline}}\t\t}"
+                    + "{{newline}}\t};"
+                    + "{{newline}}\tcellery:CellImage ${4:cell} = {"
+                    + "{{newline}}\t\tcomponents: {"
+                    + "{{newline}}\t\t\t\"${1:component-name}\": ${3:component}"
+                    + "{{newline}}\t\t}"
+                    + "{{newline}}\t};"
+                    + "{{newline}}\treturn <@untainted> cellery:createImage(${4:cell}, iName);"
+                    + "{{newline}}}");
+    private static final SnippetTemplate COMPOSITE_BUILD_FUNCTION_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.COMPOSITE_BUILD_FUNCTION_LABEL,
+            "public function build(cellery:ImageName iName) returns error? {"
+                    + "{{newline}}\tcellery:Component ${3:component} = {"
+                    + "{{newline}}\t\tname: \"${1:component-name}\","
+                    + "{{newline}}\t\tsrc: {"
+                    + "{{newline}}\t\t\timage: \"${2:image}\"\n"
+                    + "{{newline}}\t\t}"
+                    + "{{newline}}\t};"
+                    + "{{newline}}\tcellery:Composite ${4:composite} = {"
+                    + "{{newline}}\t\tcomponents: {"
+                    + "{{newline}}\t\t\t\"${1:component-name}\": ${3:component}"
+                    + "{{newline}}\t\t}"
+                    + "{{newline}}\t};"
+                    + "{{newline}}\treturn <@untainted> cellery:createImage(${4:composite}, iName);"
+                    + "{{newline}}}");
+    private static final SnippetTemplate RUN_FUNCTION_SNIPPET = SnippetTemplate.compile(
+            Constants.CompletionProvider.RUN_FUNCTION_LABEL,
+            "public function run(cellery:ImageName iName, map<cellery:ImageName> instances, "
+                    + "boolean startDependencies, boolean shareDependencies) returns (cellery:InstanceState[]|error?) {"
+                    + "{{newline}}\tcellery:CellImage|cellery:Composite ${1:image} = "
+                    + "cellery:constructImage(iName);"
+                    + "{{newline}}\treturn <@untainted> cellery:createInstance(${1:image}, iName, "
+                    + "instances, startDependencies, shareDependencies);"
+                    + "{{newline}}}");
+    private static final File SNIPPETS_DIRECTORY = new File(Constants.SNIPPETS_DIRECTORY);
+    private static volatile UserSnippets userSnippets;
 
     /**
-     * Get Cellery Component Snippet Block.
+     * Get Cellery Component Snippet.
      *
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    public static SnippetBlock getComponentSnippet() {
-        return new SnippetBlock(Constants.CompletionProvider.COMPONENT_SNIPPET_LABEL,
-                "cellery:Component ${3:component} = {\n" +
-                            "\tname: \"${1:component-name}\",\n" +
-                            "\tsrc: {\n" +
-                                "\t\timage: \"${2:image}\"\n" +
-                            "\t}\n" +
-                        "};",
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static SnippetTemplate getComponentSnippet() {
+        return COMPONENT_SNIPPET;
     }
 
     /**
-     * Get Cellery Cell Image Snippet Block.
+     * Get Cellery Cell Image Snippet.
      *
-     * @param components Components that should be part of the Cell
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * The snippet includes the components visible at the cursor.
+     *
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    public static SnippetBlock getCellImageSnippet(Map<String, Component> components) {
-        String componentsString = generateComponentsMapEntries(components, "\t");
-        return new SnippetBlock(Constants.CompletionProvider.CELL_SNIPPET_LABEL,
-                "cellery:CellImage ${1:cell} = {\n" +
-                            "\tcomponents: " + componentsString + "\n" +
-                        "};",
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static SnippetTemplate getCellImageSnippet() {
+        return CELL_IMAGE_SNIPPET;
     }
 
     /**
-     * Get Cellery Composite Image Snippet Block.
+     * Get Cellery Composite Image Snippet.
+     *
+     * The snippet includes the components visible at the cursor.
      *
-     * @param components Components that should be part of the Composite
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    public static SnippetBlock getCompositeImageSnippet(Map<String, Component> components) {
-        String componentsString = generateComponentsMapEntries(components, "\t");
-        return new SnippetBlock(Constants.CompletionProvider.COMPOSITE_SNIPPET_LABEL,
-                "cellery:Composite ${1:composite} = {\n" +
-                            "\tcomponents: " + componentsString + "\n" +
-                        "};",
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static SnippetTemplate getCompositeImageSnippet() {
+        return COMPOSITE_IMAGE_SNIPPET;
     }
 
     /**
-     * Generate the entries in the components map.
+     * Get Cell Build function snippet.
      *
-     * @param components Components that should be part of the map
-     * @param leadingPadding Padding to be added before the map block
-     * @return The components map string
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    private static String generateComponentsMapEntries(Map<String, Component> components, String leadingPadding) {
-        StringBuilder componentsStringBuilder = new StringBuilder();
-        boolean isFirstEntry = true;
-        for (Map.Entry<String, Component> componentsEntry: components.entrySet()) {
-            if (isFirstEntry) {
-                isFirstEntry = false;
-            } else {
-                componentsStringBuilder.append(",");
-            }
-            componentsStringBuilder.append("\n")
-                    .append(leadingPadding)
-                    .append("\t")
-                    .append(componentsEntry.getValue().getName())
-                    .append(": ")
-                    .append(componentsEntry.getKey());
-        }
-        String componentsString = componentsStringBuilder.toString();
-        if (!"".equals(componentsString)) {
-            componentsString = componentsString + "\n" + leadingPadding;
-        }
-        return "{" + componentsString + "}";
+    public static SnippetTemplate getCellBuildFunctionSnippet() {
+        return CELL_BUILD_FUNCTION_SNIPPET;
     }
 
     /**
-     * Get Cell Build function snippet.
+     * Get Composite Build function snippet.
      *
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    public static SnippetBlock getCellBuildFunctionSnippet() {
-        String snippet = "public function build(cellery:ImageName iName) returns error? {"
-                + System.lineSeparator() + "\tcellery:Component ${3:component} = {"
-                + System.lineSeparator() + "\t\tname: \"${1:component-name}\","
-                + System.lineSeparator() + "\t\tsrc: {"
-                + System.lineSeparator() + "\t\t\timage: \"${2:image}\"\n"
-                + System.lineSeparator() + "\t\t}"
-                + System.lineSeparator() + "\t};"
-                + System.lineSeparator() + "\tcellery:CellImage ${4:cell} = {"
-                + System.lineSeparator() + "\t\tcomponents: {"
-                + System.lineSeparator() + "\t\t\t\"${1:component-name}\": ${3:component}"
-                + System.lineSeparator() + "\t\t}"
-                + System.lineSeparator() + "\t};"
-                + System.lineSeparator() + "\treturn <@untainted> cellery:createImage(${4:cell}, iName);"
-                + System.lineSeparator() + "}";
-        return new SnippetBlock(Constants.CompletionProvider.CELL_BUILD_FUNCTION_LABE, snippet,
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static SnippetTemplate getCompositeBuildFunctionSnippet() {
+        return COMPOSITE_BUILD_FUNCTION_SNIPPET;
     }
 
     /**
-     * Get Composite Build function snippet.
+     * Get Cell/Composite Run function snippet.
      *
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * @return {@link SnippetTemplate} Compiled Snippet Template
      */
-    public static SnippetBlock getCompositeBuildFunctionSnippet() {
-        String snippet = "public function build(cellery:ImageName iName) returns error? {"
-                + System.lineSeparator() + "\tcellery:Component ${3:component} = {"
-                + System.lineSeparator() + "\t\tname: \"${1:component-name}\","
-                + System.lineSeparator() + "\t\tsrc: {"
-                + System.lineSeparator() + "\t\t\timage: \"${2:image}\"\n"
-                + System.lineSeparator() + "\t\t}"
-                + System.lineSeparator() + "\t};"
-                + System.lineSeparator() + "\tcellery:Composite ${4:composite} = {"
-                + System.lineSeparator() + "\t\tcomponents: {"
-                + System.lineSeparator() + "\t\t\t\"${1:component-name}\": ${3:component}"
-                + System.lineSeparator() + "\t\t}"
-                + System.lineSeparator() + "\t};"
-                + System.lineSeparator() + "\treturn <@untainted> cellery:createImage(${4:composite}, iName);"
-                + System.lineSeparator() + "}";
-        return new SnippetBlock(Constants.CompletionProvider.COMPOSITE_BUILD_FUNCTION_LABEL, snippet,
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static SnippetTemplate getRunFunctionSnippet() {
+        return RUN_FUNCTION_SNIPPET;
     }
 
     /**
-     * Get Cell/Composite Run function snippet.
+     * Get the snippets supplied by the user.
      *
-     * @return {@link SnippetBlock} Generated Snippet Block
+     * @return {@link List<SnippetTemplate>} Compiled Snippet Templates
      */
-    public static SnippetBlock getRunFunctionSnippet() {
-        String snippet = "public function run(cellery:ImageName iName, map<cellery:ImageName> instances, "
-                + "boolean startDependencies, boolean shareDependencies) returns (cellery:InstanceState[]|error?) {"
-                + System.lineSeparator() + "\tcellery:CellImage|cellery:Composite ${1:image} = "
-                + "cellery:constructImage(iName);"
-                + System.lineSeparator() + "\treturn <@untainted> cellery:createInstance(${1:image}, iName, "
-                + "instances, startDependencies, shareDependencies);"
-                + System.lineSeparator() + "}";
-        return new SnippetBlock(Constants.CompletionProvider.RUN_FUNCTION_LABEL, snippet,
-                ItemResolverConstants.SNIPPET_TYPE,
-                SnippetBlock.SnippetType.SNIPPET);
+    public static List<SnippetTemplate> getUserSnippets() {
+        long directoryLastModified = SNIPPETS_DIRECTORY.lastModified();
+        UserSnippets currentUserSnippets = userSnippets;
+        if (currentUserSnippets == null || currentUserSnippets.directoryLastModified != directoryLastModified) {
+            currentUserSnippets = new UserSnippets(directoryLastModified, loadUserSnippets(SNIPPETS_DIRECTORY));
+            userSnippets = currentUserSnippets;
+        }
+        return currentUserSnippets.snippets;
+    }
+
+    /**
+     * Load and compile the user snippets in a directory.
+     *
+     * Snippets which cannot be read or compiled are skipped.
+     *
+     * @param snippetsDirectory The directory containing the user snippets
+     * @return The compiled user snippets
+     */
+    private static List<SnippetTemplate> loadUserSnippets(File snippetsDirectory) {
+        File[] snippetFiles = snippetsDirectory.listFiles((directory, fileName) ->
+                fileName.endsWith(USER_SNIPPET_EXTENSION));
+        if (snippetFiles == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(snippetFiles, Comparator.comparing(File::getName));
+        List<SnippetTemplate> userSnippets = new ArrayList<>(snippetFiles.length);
+        for (File snippetFile : snippetFiles) {
+            String fileName = snippetFile.getName();
+            String label = Constants.CompletionProvider.USER_SNIPPET_LABEL_PREFIX
+                    + fileName.substring(0, fileName.length() - USER_SNIPPET_EXTENSION.length());
+            try {
+                String template = new String(Files.readAllBytes(snippetFile.toPath()), StandardCharsets.UTF_8);
+                userSnippets.add(SnippetTemplate.compile(label, template));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Ignoring Cellery snippet " + snippetFile.getAbsolutePath(), e);
+            }
+        }
+        return Collections.unmodifiableList(userSnippets);
+    }
+
+    /**
+     * User snippets loaded from the snippets directory at a specific last modified time of the directory.
+     */
+    private static class UserSnippets {
+        private final long directoryLastModified;
+        private final List<SnippetTemplate> snippets;
+
+        private UserSnippets(long directoryLastModified, List<SnippetTemplate> snippets) {
+            this.directoryLastModified = directoryLastModified;
+            this.snippets = snippets;
+        }
     }
 
     private SnippetGenerator() {    // Prevent initialization
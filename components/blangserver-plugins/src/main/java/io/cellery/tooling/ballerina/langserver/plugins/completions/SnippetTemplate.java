@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.completions;
+
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CelleryKeys;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.Component;
+import org.ballerinalang.langserver.SnippetBlock;
+import org.ballerinalang.langserver.compiler.LSContext;
+import org.ballerinalang.langserver.completions.util.ItemResolverConstants;
+import org.eclipse.lsp4j.CompletionItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Snippet template compiled once into literal text and typed placeholders.
+ *
+ * Placeholders are written as {{name}} and are resolved when the snippet is rendered. The LSP snippet syntax
+ * (${1:name}) is kept as it is. The following placeholders are supported.
+ * <ul>
+ *     <li>{{components}} - The map of the Cellery Components visible at the cursor (variable names by component
+ *     names), indented to match the line of the placeholder</li>
+ *     <li>{{newline}} - The line separator of the platform</li>
+ * </ul>
+ *
+ * The completion items rendered for the most recently used sets of components are cached with the components as keys,
+ * so that requests on documents with unchanged components reuse them even when switching between documents. Copies of
+ * the cached items are served, as completion items are mutable. The client capabilities used when building the items
+ * do not change within a session.
+ */
+public class SnippetTemplate {
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{(\\w+)}}");
+    private static final int MAX_CACHED_RENDERINGS = 16;
+
+    private final String label;
+    private final List<Segment> segments;
+    private final boolean usesComponents;
+    private final Map<List<String>, CompletionItem> cachedRenderings;
+
+    private SnippetTemplate(String label, List<Segment> segments) {
+        this.label = label;
+        this.segments = segments;
+        this.usesComponents = segments.stream().anyMatch(segment -> segment.placeholder == Placeholder.COMPONENTS);
+        // Access ordered, so that the least recently used rendering is evicted first
+        this.cachedRenderings = new LinkedHashMap<>(MAX_CACHED_RENDERINGS * 2, 0.75f, true);
+    }
+
+    /**
+     * Compile a snippet template.
+     *
+     * @param label The label of the snippet
+     * @param template The snippet template
+     * @return The compiled snippet template
+     * @throws IllegalArgumentException If the template contains an unknown placeholder
+     */
+    public static SnippetTemplate compile(String label, String template) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+        int literalStart = 0;
+        while (matcher.find()) {
+            if (matcher.start() > literalStart) {
+                segments.add(new Segment(template.substring(literalStart, matcher.start()), null, null));
+            }
+            Placeholder placeholder = Placeholder.fromName(matcher.group(1));
+            if (placeholder == null) {
+                throw new IllegalArgumentException("Unknown placeholder " + matcher.group() + " in snippet " + label);
+            }
+            int lineStart = template.lastIndexOf('\n', matcher.start()) + 1;
+            int indentationEnd = lineStart;
+            while (indentationEnd < matcher.start() && Character.isWhitespace(template.charAt(indentationEnd))) {
+                indentationEnd++;
+            }
+            segments.add(new Segment(null, placeholder, template.substring(lineStart, indentationEnd)));
+            literalStart = matcher.end();
+        }
+        if (literalStart < template.length()) {
+            segments.add(new Segment(template.substring(literalStart), null, null));
+        }
+        return new SnippetTemplate(label, Collections.unmodifiableList(segments));
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Build the completion item of the snippet.
+     *
+     * @param context Language Server Context
+     * @return The completion item
+     */
+    public CompletionItem build(LSContext context) {
+        Map<String, Component> components = usesComponents ? context.get(CelleryKeys.COMPONENTS) : null;
+        List<String> componentEntries = new ArrayList<>();
+        if (components != null) {
+            for (Map.Entry<String, Component> componentEntry : components.entrySet()) {
+                componentEntries.add(componentEntry.getKey());
+                componentEntries.add(componentEntry.getValue().getName());
+            }
+        }
+
+        CompletionItem completionItem;
+        synchronized (cachedRenderings) {
+            completionItem = cachedRenderings.get(componentEntries);
+        }
+        if (completionItem == null) {
+            SnippetBlock snippetBlock = new SnippetBlock(label, render(componentEntries),
+                    ItemResolverConstants.SNIPPET_TYPE, SnippetBlock.SnippetType.SNIPPET);
+            completionItem = snippetBlock.build(context);
+            synchronized (cachedRenderings) {
+                cachedRenderings.put(componentEntries, completionItem);
+                Iterator<List<String>> cachedRenderingsIterator = cachedRenderings.keySet().iterator();
+                while (cachedRenderings.size() > MAX_CACHED_RENDERINGS) {
+                    cachedRenderingsIterator.next();
+                    cachedRenderingsIterator.remove();
+                }
+            }
+        }
+        return CompletionUtils.copyCompletionItem(completionItem);
+    }
+
+    /**
+     * Render the snippet.
+     *
+     * @param componentEntries The variable names and the component names of the components alternately
+     * @return The rendered snippet
+     */
+    private String render(List<String> componentEntries) {
+        StringBuilder snippetBuilder = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.placeholder == null) {
+                snippetBuilder.append(segment.literal);
+            } else if (segment.placeholder == Placeholder.NEWLINE) {
+                snippetBuilder.append(System.lineSeparator());
+            } else {
+                renderComponentsMap(snippetBuilder, componentEntries, segment.indentation);
+            }
+        }
+        return snippetBuilder.toString();
+    }
+
+    /**
+     * Render the components map.
+     *
+     * @param snippetBuilder The builder to which the map should be appended
+     * @param componentEntries The variable names and the component names of the components alternately
+     * @param leadingPadding Padding to be added before the map block
+     */
+    private static void renderComponentsMap(StringBuilder snippetBuilder, List<String> componentEntries,
+                                            String leadingPadding) {
+        snippetBuilder.append("{");
+        for (int i = 0; i < componentEntries.size(); i += 2) {
+            if (i > 0) {
+                snippetBuilder.append(",");
+            }
+            snippetBuilder.append("\n")
+                    .append(leadingPadding)
+                    .append("\t")
+                    .append(componentEntries.get(i + 1))
+                    .append(": ")
+                    .append(componentEntries.get(i));
+        }
+        if (!componentEntries.isEmpty()) {
+            snippetBuilder.append("\n").append(leadingPadding);
+        }
+        snippetBuilder.append("}");
+    }
+
+    /**
+     * Placeholders supported in snippet templates.
+     */
+    private enum Placeholder {
+        COMPONENTS,
+        NEWLINE;
+
+        private static Placeholder fromName(String name) {
+            for (Placeholder placeholder : values()) {
+                if (placeholder.name().toLowerCase(Locale.ENGLISH).equals(name)) {
+                    return placeholder;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Part of a compiled template which is either literal text or a placeholder.
+     */
+    private static class Segment {
+        private final String literal;
+        private final Placeholder placeholder;
+        private final String indentation;
+
+        private Segment(String literal, Placeholder placeholder, String indentation) {
+            this.literal = literal;
+            this.placeholder = placeholder;
+            this.indentation = indentation;
+        }
+    }
+}
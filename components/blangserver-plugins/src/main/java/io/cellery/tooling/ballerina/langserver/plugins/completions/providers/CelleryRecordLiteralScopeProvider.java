@@ -18,15 +18,25 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.completions.providers;
 
+import io.cellery.tooling.ballerina.langserver.plugins.CelleryPlugin;
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
 import io.cellery.tooling.ballerina.langserver.plugins.Constants;
 import io.cellery.tooling.ballerina.langserver.plugins.Utils;
 import io.cellery.tooling.ballerina.langserver.plugins.completions.CompletionUtils;
 import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.CompletionMetrics;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CelleryKeys;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CellerySourceScanner;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.Component;
 import org.ballerinalang.annotation.JavaSPIService;
+import org.ballerinalang.langserver.compiler.DocumentServiceKeys;
 import org.ballerinalang.langserver.compiler.LSContext;
 import org.ballerinalang.langserver.completions.CompletionKeys;
 import org.ballerinalang.langserver.completions.providers.scopeproviders.RecordLiteralScopeProvider;
 import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.ballerinalang.compiler.parser.antlr4.BallerinaParser;
@@ -35,8 +45,17 @@ import org.wso2.ballerinalang.compiler.tree.BLangNode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +67,8 @@ import java.util.stream.Collectors;
 @JavaSPIService("org.ballerinalang.langserver.completions.spi.LSCompletionProvider")
 public class CelleryRecordLiteralScopeProvider extends RecordLiteralScopeProvider {
     private static final Logger logger = LoggerFactory.getLogger(CelleryRecordLiteralScopeProvider.class);
+    private static final int MAX_CACHED_DOCUMENTS = 32;
+    private static final Map<String, CachedImageCompletions> cachedImageCompletions = new ConcurrentHashMap<>();
 
     @Override
     public Precedence getPrecedence() {
@@ -56,21 +77,41 @@ public class CelleryRecordLiteralScopeProvider extends RecordLiteralScopeProvide
 
     @Override
     public List<CompletionItem> getCompletions(LSContext context) {
+        CompletionMetrics.Sample metricsSample = CompletionMetrics.start(getClass().getSimpleName());
+        Tracer.Span requestSpan = Tracer.start(getClass().getSimpleName());
+        CompletionDeadline deadline = null;
         List<CompletionItem> completions = new ArrayList<>();
+        Future<List<CompletionItem>> celleryCompletions = null;
+        String fileUri = null;
+        boolean includeAlias = false;
+        Constants.ImageKind imageKind = null;
         try {
             if (Utils.hasCelleryImport(context)) {
+                CelleryPlugin.onCelleryDocument(context);
+                fileUri = context.get(DocumentServiceKeys.FILE_URI_KEY);
+                deadline = CompletionDeadline.start(fileUri);
+                context.put(CelleryKeys.COMPLETION_DEADLINE, deadline);
                 BLangNode scopeNode = context.get(CompletionKeys.SCOPE_NODE_KEY);
                 List<Integer> defaultTokenTypes = context.get(CompletionKeys.LHS_DEFAULT_TOKEN_TYPES_KEY);
                 Integer invocationToken = context.get(CompletionKeys.INVOCATION_TOKEN_TYPE_KEY);
 
                 int invocationTokenTypeIndex = defaultTokenTypes.lastIndexOf(invocationToken);
                 int firstColonIndex = defaultTokenTypes.indexOf(BallerinaParser.COLON);
-                if (Utils.checkMapType(scopeNode.type, Constants.CelleryTypes.IMAGE_NAME)) {
-                    if (firstColonIndex == -1) {
-                        completions.addAll(getCelleryImageCompletions(true));
-                    } else if (firstColonIndex == invocationTokenTypeIndex) {
-                        completions.addAll(getCelleryImageCompletions(false));
-                    }
+                if (Utils.checkMapType(scopeNode.type, Constants.CelleryTypes.IMAGE_NAME)
+                        && (firstColonIndex == -1 || firstColonIndex == invocationTokenTypeIndex)) {
+                    // Image completions are computed in the background while computing the Ballerina completions
+                    includeAlias = firstColonIndex == -1;
+                    String documentContent = Utils.getDocumentContent(context);
+                    TextDocumentPositionParams positionParams = context.get(DocumentServiceKeys.POSITION_KEY);
+                    imageKind = documentContent == null || positionParams == null
+                            ? null
+                            : getDependencyImageKind(documentContent, positionParams.getPosition());
+                    String requestFileUri = fileUri;
+                    boolean requestIncludeAlias = includeAlias;
+                    Constants.ImageKind requestImageKind = imageKind;
+                    CompletionDeadline requestDeadline = deadline;
+                    celleryCompletions = CompletionUtils.submit(() -> getCelleryImageCompletions(requestFileUri,
+                            requestIncludeAlias, documentContent, requestImageKind, requestDeadline));
                 }
             }
         } catch (Exception e) {
@@ -78,21 +119,81 @@ public class CelleryRecordLiteralScopeProvider extends RecordLiteralScopeProvide
         }
 
         // Get statement context completions
+        Tracer.Span ballerinaCompletionsSpan = Tracer.start("super.getCompletions");
         try {
             completions.addAll(super.getCompletions(context));
         } catch (Exception e) {
             logger.error("Failed to add Statement context Ballerina lang completions", e);
         }
+        ballerinaCompletionsSpan.end();
+
+        // Merging the Cellery completions before the Ballerina completions
+        if (celleryCompletions != null) {
+            Tracer.Span awaitSpan = Tracer.start("awaitCelleryImageCompletions");
+            try {
+                completions.addAll(0, celleryCompletions.get(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // Listing the images continues in the background and caches the completions for a later request
+                completions.addAll(0, getPreviousImageCompletions(fileUri, includeAlias, imageKind));
+                logger.debug("Serving the previous Cellery image completions of the document as the current "
+                        + "completions were not ready before the deadline");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.error("Failed to add Statement context Cellery completions", e.getCause());
+            }
+            awaitSpan.end();
+        }
+        if (deadline != null) {
+            deadline.finish();
+        }
+        requestSpan.end();
+        metricsSample.stop();
         return completions;
     }
 
     /**
      * Get Cellery specific completions for Images to be added as dependencies.
      *
+     * The images are ordered by their relevance to the current document. The completions of the previous request on
+     * the document are reused if they were generated for the same images and document dependencies, and nothing is
+     * generated if the request was superseded before the task started. The cached completions are never returned
+     * themselves, as the language server may modify the items of a response.
+     *
+     * @param fileUri The URI of the current document or null if not available
+     * @param includeAlias True if the completions should include the dependency alias
+     * @param documentContent The content of the current document or null if not available
+     * @param imageKind The kind of the images to be completed or null if images of all kinds should be completed
+     * @param deadline The deadline of the completion request
      * @return {@link List<CompletionItem>} List of calculated Completion Items
      */
-    private List<CompletionItem> getCelleryImageCompletions(boolean includeAlias) {
-        Collection<ImageManager.Image> images = ImageManager.getInstance().getImages();
+    private List<CompletionItem> getCelleryImageCompletions(String fileUri, boolean includeAlias,
+                                                            String documentContent, Constants.ImageKind imageKind,
+                                                            CompletionDeadline deadline) {
+        if (deadline.isSuperseded()) {
+            return Collections.emptyList();
+        }
+        Tracer.Span span = Tracer.start("getCelleryImageCompletions");
+        Set<String> documentDependencies = new HashSet<>();
+        if (documentContent != null) {
+            for (CellerySourceScanner.ImageLiteral imageLiteral
+                    : CellerySourceScanner.scan(documentContent).getImageLiterals()) {
+                documentDependencies.add(imageLiteral.getImageFQN());
+            }
+        }
+        ImageManager imageManager = ImageManager.getInstance();
+        long imagesGeneration = imageManager.getGeneration();
+        CachedImageCompletions cachedCompletions = fileUri == null ? null : cachedImageCompletions.get(fileUri);
+        if (cachedCompletions != null && cachedCompletions.isCompatible(includeAlias, imageKind, imagesGeneration,
+                documentDependencies)) {
+            cachedCompletions.lastUsedTime = System.nanoTime();
+            span.end();
+            return CompletionUtils.copyCompletionItems(cachedCompletions.completions);
+        }
+        Collection<ImageManager.Image> candidateImages = imageKind == null
+                ? imageManager.getImages()
+                : imageManager.findImagesOfKind(imageKind.name());
+        List<ImageManager.Image> images = CompletionUtils.rankImages(candidateImages, documentDependencies);
         List<CompletionItem> completions;
         if (includeAlias) {
             completions = CompletionUtils.generateImageStringCompletions(images, (image) -> {
@@ -108,6 +209,114 @@ public class CelleryRecordLiteralScopeProvider extends RecordLiteralScopeProvide
             completions = CompletionUtils.generateImageStringCompletions(images,
                     (image) -> "\"" + image.getFQN() + "\"");
         }
-        return completions;
+        if (fileUri != null) {
+            cachedImageCompletions.put(fileUri, new CachedImageCompletions(includeAlias, imageKind, imagesGeneration,
+                    documentDependencies, completions));
+            evictCachedImageCompletions();
+        }
+        span.end();
+        return CompletionUtils.copyCompletionItems(completions);
+    }
+
+    /**
+     * Evict the completions of the least recently used documents if completions are cached for too many documents.
+     *
+     * The language server does not notify the plugins when a document is closed, so the number of cached documents is
+     * bounded instead.
+     */
+    private static void evictCachedImageCompletions() {
+        while (cachedImageCompletions.size() > MAX_CACHED_DOCUMENTS) {
+            String leastRecentlyUsedFileUri = null;
+            long leastRecentUseTime = Long.MAX_VALUE;
+            for (Map.Entry<String, CachedImageCompletions> cachedCompletionsEntry : cachedImageCompletions.entrySet()) {
+                if (cachedCompletionsEntry.getValue().lastUsedTime <= leastRecentUseTime) {
+                    leastRecentlyUsedFileUri = cachedCompletionsEntry.getKey();
+                    leastRecentUseTime = cachedCompletionsEntry.getValue().lastUsedTime;
+                }
+            }
+            if (leastRecentlyUsedFileUri == null) {
+                return;
+            }
+            cachedImageCompletions.remove(leastRecentlyUsedFileUri);
+        }
+    }
+
+    /**
+     * Get the image completions generated for the previous request on a document.
+     *
+     * The completions are served when the current completions are not ready before the deadline. They might have
+     * been ranked for slightly different document dependencies or images, which is corrected by a later request.
+     *
+     * @param fileUri The URI of the current document or null if not available
+     * @param includeAlias True if the completions should include the dependency alias
+     * @param imageKind The kind of the images to be completed or null if images of all kinds should be completed
+     * @return The copies of the previous completions or an empty list if no compatible completions are cached
+     */
+    private static List<CompletionItem> getPreviousImageCompletions(String fileUri, boolean includeAlias,
+                                                                    Constants.ImageKind imageKind) {
+        CachedImageCompletions cachedCompletions = fileUri == null ? null : cachedImageCompletions.get(fileUri);
+        if (cachedCompletions == null || cachedCompletions.includeAlias != includeAlias
+                || cachedCompletions.imageKind != imageKind) {
+            return Collections.emptyList();
+        }
+        return CompletionUtils.copyCompletionItems(cachedCompletions.completions);
+    }
+
+    /**
+     * Get the kind of the dependency images expected at a position.
+     *
+     * @param documentContent The content of the current document
+     * @param position The position of the cursor
+     * @return The kind of the images if the position is inside the cells or composites dependencies map,
+     *         null otherwise
+     */
+    private static Constants.ImageKind getDependencyImageKind(String documentContent, Position position) {
+        String fieldName = Utils.getEnclosingRecordFieldName(documentContent, position);
+        if (Component.DEPENDENCIES_CELLS_FIELD_NAME.equals(fieldName)) {
+            return Constants.ImageKind.Cell;
+        } else if (Component.DEPENDENCIES_COMPOSITES_FIELD_NAME.equals(fieldName)) {
+            return Constants.ImageKind.Composite;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Image completions generated for the latest request on a document.
+     */
+    private static class CachedImageCompletions {
+        private final boolean includeAlias;
+        private final Constants.ImageKind imageKind;
+        private final long imagesGeneration;
+        private final Set<String> documentDependencies;
+        private final List<CompletionItem> completions;
+        private volatile long lastUsedTime;
+
+        private CachedImageCompletions(boolean includeAlias, Constants.ImageKind imageKind, long imagesGeneration,
+                                       Set<String> documentDependencies, List<CompletionItem> completions) {
+            this.includeAlias = includeAlias;
+            this.imageKind = imageKind;
+            this.imagesGeneration = imagesGeneration;
+            this.documentDependencies = documentDependencies;
+            this.completions = completions;
+            this.lastUsedTime = System.nanoTime();
+        }
+
+        /**
+         * Check whether the completions can be served for a request.
+         *
+         * @param requestIncludeAlias True if the request needs the dependency alias in the completions
+         * @param requestImageKind The kind of the images requested or null if images of all kinds are requested
+         * @param currentImagesGeneration The current generation of the images in memory
+         * @param requestDocumentDependencies The image FQNs the document of the request depends on
+         * @return True if the completions would be generated the same way for the request
+         */
+        private boolean isCompatible(boolean requestIncludeAlias, Constants.ImageKind requestImageKind,
+                                     long currentImagesGeneration, Set<String> requestDocumentDependencies) {
+            return includeAlias == requestIncludeAlias
+                    && imageKind == requestImageKind
+                    && imagesGeneration == currentImagesGeneration
+                    && documentDependencies.equals(requestDocumentDependencies);
+        }
     }
 }
@@ -18,27 +18,40 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.completions.providers;
 
+import io.cellery.tooling.ballerina.langserver.plugins.CelleryPlugin;
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
 import io.cellery.tooling.ballerina.langserver.plugins.Constants;
 import io.cellery.tooling.ballerina.langserver.plugins.Utils;
 import io.cellery.tooling.ballerina.langserver.plugins.completions.CompletionUtils;
 import io.cellery.tooling.ballerina.langserver.plugins.completions.SnippetGenerator;
+import io.cellery.tooling.ballerina.langserver.plugins.completions.SnippetTemplate;
 import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.CompletionMetrics;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
 import io.cellery.tooling.ballerina.langserver.plugins.visitor.CelleryKeys;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.Component;
 import org.antlr.v4.runtime.CommonToken;
 import org.ballerinalang.annotation.JavaSPIService;
 import org.ballerinalang.langserver.common.CommonKeys;
 import org.ballerinalang.langserver.common.utils.FilterUtils;
+import org.ballerinalang.langserver.compiler.DocumentServiceKeys;
 import org.ballerinalang.langserver.compiler.LSContext;
+import org.ballerinalang.langserver.compiler.workspace.WorkspaceDocumentException;
 import org.ballerinalang.langserver.completions.CompletionKeys;
 import org.ballerinalang.langserver.completions.SymbolInfo;
 import org.ballerinalang.langserver.completions.providers.contextproviders.StatementContextProvider;
 import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.ballerinalang.compiler.parser.antlr4.BallerinaParser;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Statement Context Cellery Completions Provider.
@@ -49,6 +62,8 @@ import java.util.List;
 @JavaSPIService("org.ballerinalang.langserver.completions.spi.LSCompletionProvider")
 public class CelleryStatementContextProvider extends StatementContextProvider {
     private static final Logger logger = LoggerFactory.getLogger(CelleryStatementContextProvider.class);
+    private static final Pattern REFERENCE_KEY_ARGUMENT_PATTERN = Pattern.compile("(?:\\b(\\w+)|cellery:getReference"
+            + "\\(\\s*(\\w+)\\s*,\\s*\"([^\"]*)\"\\s*\\))\\s*\\.\\s*get\\(\\s*\"([^\"]*)$");
 
     @Override
     public Precedence getPrecedence() {
@@ -57,34 +72,111 @@ public class CelleryStatementContextProvider extends StatementContextProvider {
 
     @Override
     public List<CompletionItem> getCompletions(LSContext context) {
-        List<CompletionItem> completions = new ArrayList<>();
-
+        CompletionMetrics.Sample metricsSample = CompletionMetrics.start(getClass().getSimpleName());
+        Tracer.Span requestSpan = Tracer.start(getClass().getSimpleName());
+        CompletionDeadline deadline = null;
         try {
-            if (Utils.hasCelleryImport(context)) {
-                Boolean forceRemovedStmt = context.get(CompletionKeys.FORCE_REMOVED_STATEMENT_WITH_PARENTHESIS_KEY);
-                if (!this.isAnnotationAccessExpression(context) && !this.isAnnotationAttachmentContext(context)
-                        && !this.inFunctionReturnParameterContext(context)
-                        && (forceRemovedStmt == null || !forceRemovedStmt)) {
-                    CompletionUtils.addCelleryInfoToContext(context);
-                    int invocationOrDelimiterTokenType = context.get(CompletionKeys.INVOCATION_TOKEN_TYPE_KEY);
-                    if (invocationOrDelimiterTokenType == -1) {
-                        completions.addAll(this.getCellerySnippetCompletions(context));
-                    } else if (invocationOrDelimiterTokenType > -1) {
-                        completions.addAll(this.getCelleryFieldAccessOrInvocationCompletions(context));
+            List<CompletionItem> completions = new ArrayList<>();
+            try {
+                if (Utils.hasCelleryImport(context)) {
+                    CelleryPlugin.onCelleryDocument(context);
+                    deadline = CompletionDeadline.start(context.get(DocumentServiceKeys.FILE_URI_KEY));
+                    context.put(CelleryKeys.COMPLETION_DEADLINE, deadline);
+                    Boolean forceRemovedStmt = context.get(CompletionKeys.FORCE_REMOVED_STATEMENT_WITH_PARENTHESIS_KEY);
+                    if (!this.isAnnotationAccessExpression(context) && !this.isAnnotationAttachmentContext(context)
+                            && !this.inFunctionReturnParameterContext(context)
+                            && (forceRemovedStmt == null || !forceRemovedStmt)) {
+                        CompletionUtils.addCelleryInfoToContext(context);
+                        if (deadline.isSuperseded()) {
+                            // The editor discards the result of this request, so only Ballerina completions are added
+                            logger.debug("Skipping Statement context Cellery completions of a superseded request");
+                        } else {
+                            int invocationOrDelimiterTokenType = context.get(CompletionKeys.INVOCATION_TOKEN_TYPE_KEY);
+                            Tracer.Span celleryCompletionsSpan = Tracer.start("getCelleryCompletions");
+                            List<CompletionItem> referenceKeyCompletions =
+                                    this.getReferenceKeyStringCompletions(context);
+                            if (referenceKeyCompletions != null) {
+                                // Only reference keys are relevant inside the string argument of get("...")
+                                celleryCompletionsSpan.end();
+                                return referenceKeyCompletions;
+                            } else if (invocationOrDelimiterTokenType == -1) {
+                                completions.addAll(this.getCellerySnippetCompletions(context));
+                            } else if (invocationOrDelimiterTokenType > -1) {
+                                completions.addAll(this.getCelleryFieldAccessOrInvocationCompletions(context));
+                            }
+                            celleryCompletionsSpan.end();
+                        }
                     }
                 }
+            } catch (Exception e) {
+                logger.error("Failed to add Statement context Cellery completions", e);
+            }
+
+            // Get statement context completions
+            Tracer.Span ballerinaCompletionsSpan = Tracer.start("super.getCompletions");
+            try {
+                completions.addAll(super.getCompletions(context));
+            } catch (Exception e) {
+                logger.error("Failed to add Statement context Ballerina lang completions", e);
             }
-        } catch (Exception e) {
-            logger.error("Failed to add Statement context Cellery completions", e);
+            ballerinaCompletionsSpan.end();
+            return completions;
+        } finally {
+            if (deadline != null) {
+                deadline.finish();
+            }
+            requestSpan.end();
+            metricsSample.stop();
         }
+    }
 
-        // Get statement context completions
-        try {
-            completions.addAll(super.getCompletions(context));
-        } catch (Exception e) {
-            logger.error("Failed to add Statement context Ballerina lang completions", e);
+    /**
+     * Get reference key completions if the cursor is inside the string argument of get("...") on a reference.
+     *
+     * @param context Language Server Context
+     * @return {@link List<CompletionItem>} List of calculated Completion Items or null if the cursor is not inside
+     *         the string argument of get("...") on a reference
+     */
+    private List<CompletionItem> getReferenceKeyStringCompletions(LSContext context)
+            throws WorkspaceDocumentException {
+        String content = Utils.getDocumentContent(context);
+        TextDocumentPositionParams positionParams = context.get(DocumentServiceKeys.POSITION_KEY);
+        if (content == null || positionParams == null) {
+            return null;
         }
-        return completions;
+        Position position = positionParams.getPosition();
+        String linePrefix = Utils.getLinePrefix(content, position);
+        if (linePrefix == null) {
+            return null;
+        }
+        Matcher matcher = REFERENCE_KEY_ARGUMENT_PATTERN.matcher(linePrefix);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        Image image = null;
+        if (matcher.group(1) != null) {
+            // Invocations on variables of type cellery:Reference
+            image = context.get(CelleryKeys.IMAGE_REFERENCES).get(matcher.group(1));
+        } else {
+            // Direct invocations on cellery:getReference(componentVar, "alias")
+            Component component = context.get(CelleryKeys.COMPONENTS).get(matcher.group(2));
+            if (component != null && component.getDependencies() != null) {
+                image = component.getDependencies().get(matcher.group(3));
+            }
+        }
+        if (image == null) {
+            return null;
+        }
+        // The keys are checked and completed from the same snapshot, as the image might be refreshed in between
+        Image.Snapshot snapshot = image.getSnapshot();
+        if (snapshot.getReferenceKeyIndex() == null) {
+            return null;
+        }
+        String prefix = matcher.group(4);
+        Range prefixRange = new Range(new Position(position.getLine(), position.getCharacter() - prefix.length()),
+                position);
+        return CompletionUtils.generateReferenceKeyStringCompletions(image, snapshot, prefix, prefixRange);
     }
 
     /**
@@ -94,10 +186,14 @@ public class CelleryStatementContextProvider extends StatementContextProvider {
      * @return {@link List<CompletionItem>} List of calculated Completion Items
      */
     private List<CompletionItem> getCellerySnippetCompletions(LSContext context) {
-        List<CompletionItem> completions = new ArrayList<>(3);
+        List<SnippetTemplate> userSnippets = SnippetGenerator.getUserSnippets();
+        List<CompletionItem> completions = new ArrayList<>(3 + userSnippets.size());
         completions.add(SnippetGenerator.getComponentSnippet().build(context));
-        completions.add(SnippetGenerator.getCellImageSnippet(context.get(CelleryKeys.COMPONENTS)).build(context));
-        completions.add(SnippetGenerator.getCompositeImageSnippet(context.get(CelleryKeys.COMPONENTS)).build(context));
+        completions.add(SnippetGenerator.getCellImageSnippet().build(context));
+        completions.add(SnippetGenerator.getCompositeImageSnippet().build(context));
+        for (SnippetTemplate userSnippet : userSnippets) {
+            completions.add(userSnippet.build(context));
+        }
         return completions;
     }
 
@@ -131,18 +227,25 @@ public class CelleryStatementContextProvider extends StatementContextProvider {
             String aliasQuotedLiteral = defaultTokens.get(lastDelimiterIndex - 2).getText();
             String alias = aliasQuotedLiteral.substring(1, aliasQuotedLiteral.length() - 1);
 
-            Image image = context.get(CelleryKeys.COMPONENTS).get(componentVariable).getDependencies().get(alias);
-            completions = CompletionUtils.generateReferenceKeysCompletions(image);
+            Component component = context.get(CelleryKeys.COMPONENTS).get(componentVariable);
+            Image image = component == null || component.getDependencies() == null
+                    ? null
+                    : component.getDependencies().get(alias);
+            if (image != null) {    // Image might still be resolved in the background
+                completions = CompletionUtils.generateReferenceKeysCompletions(image);
+            }
         } else {
-            List<SymbolInfo> visibleSymbols = new ArrayList<>(context.get(CommonKeys.VISIBLE_SYMBOLS_KEY));
             String symbolToken = defaultTokens.get(lastDelimiterIndex - 1).getText().replace("'", "");
-            SymbolInfo symbol = FilterUtils.getVariableByName(symbolToken, visibleSymbols);
+            SymbolInfo symbol = FilterUtils.getVariableByName(symbolToken,
+                    context.get(CommonKeys.VISIBLE_SYMBOLS_KEY));
 
             if (symbol != null
                     && Utils.checkType(symbol.getScopeEntry().symbol.type, Constants.CelleryTypes.REFERENCE)) {
                 // Completions on variables of type cellery:Reference
                 Image image = context.get(CelleryKeys.IMAGE_REFERENCES).get(symbol.getSymbolName());
-                completions = CompletionUtils.generateReferenceKeysCompletions(image);
+                if (image != null) {    // Image might still be resolved in the background
+                    completions = CompletionUtils.generateReferenceKeysCompletions(image);
+                }
             }
         }
         if (completions == null) {
@@ -18,8 +18,11 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.completions.providers;
 
+import io.cellery.tooling.ballerina.langserver.plugins.CelleryPlugin;
 import io.cellery.tooling.ballerina.langserver.plugins.Utils;
 import io.cellery.tooling.ballerina.langserver.plugins.completions.SnippetGenerator;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.CompletionMetrics;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
 import org.ballerinalang.annotation.JavaSPIService;
 import org.ballerinalang.langserver.compiler.LSContext;
 import org.ballerinalang.langserver.completions.CompletionKeys;
@@ -51,10 +54,13 @@ public class CelleryTopLevelScopeProvider extends TopLevelScopeProvider {
 
     @Override
     public List<CompletionItem> getCompletions(LSContext context) {
+        CompletionMetrics.Sample metricsSample = CompletionMetrics.start(getClass().getSimpleName());
+        Tracer.Span requestSpan = Tracer.start(getClass().getSimpleName());
         List<CompletionItem> completions = new ArrayList<>();
 
         try {
             if (Utils.hasCelleryImport(context)) {
+                CelleryPlugin.onCelleryDocument(context);
                 Boolean forcedRemoved = context.get(CompletionKeys.FORCE_REMOVED_STATEMENT_WITH_PARENTHESIS_KEY);
                 // TODO: Have to check other relevant conditions
                 if (forcedRemoved == null || !forcedRemoved) {
@@ -66,11 +72,15 @@ public class CelleryTopLevelScopeProvider extends TopLevelScopeProvider {
         }
 
         // Get statement context completions
+        Tracer.Span ballerinaCompletionsSpan = Tracer.start("super.getCompletions");
         try {
             completions.addAll(super.getCompletions(context));
         } catch (Exception e) {
             logger.error("Failed to add Statement context Ballerina lang completions", e);
         }
+        ballerinaCompletionsSpan.end();
+        requestSpan.end();
+        metricsSample.stop();
         return completions;
     }
 
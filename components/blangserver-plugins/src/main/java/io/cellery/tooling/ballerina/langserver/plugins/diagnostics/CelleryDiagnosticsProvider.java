@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.diagnostics;
+
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CellerySourceScanner;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cellery diagnostics for unknown dependency images and invalid reference keys.
+ *
+ * The Ballerina language server does not let plugins publish diagnostics, so validation is only done on demand by
+ * tools such as the Cellery analyzer and never in the background of the language server.
+ */
+public class CelleryDiagnosticsProvider {
+    // Diagnostic codes used for telling apart the kinds of problems without depending on the messages
+    public static final String UNRESOLVED_IMAGE_CODE = "unresolved-image";
+    public static final String MISSING_REFERENCE_KEY_CODE = "missing-reference-key";
+    private static final String DIAGNOSTICS_SOURCE = "cellery";
+    private static final CelleryDiagnosticsProvider instance = new CelleryDiagnosticsProvider();
+
+    private CelleryDiagnosticsProvider() {
+    }
+
+    public static CelleryDiagnosticsProvider getInstance() {
+        return instance;
+    }
+
+    /**
+     * Validate the content of a Ballerina file in the calling thread.
+     *
+     * The images are only looked up through the given resolver, so that the caller decides whether images are loaded
+     * and from where.
+     *
+     * @param content The content of the file
+     * @param imageResolver The resolver returning the image of a fully qualified name or null if it is not available
+     * @return The diagnostics of the file
+     */
+    public List<Diagnostic> validate(String content, Function<String, Image> imageResolver) {
+        CellerySourceScanner.ScanResult scanResult = CellerySourceScanner.scan(content);
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (CellerySourceScanner.ImageLiteral imageLiteral : scanResult.getImageLiterals()) {
+            if (imageResolver.apply(imageLiteral.getImageFQN()) == null) {
+                diagnostics.add(createDiagnostic(imageLiteral.getRange(), UNRESOLVED_IMAGE_CODE, "Cellery Image "
+                        + imageLiteral.getImageFQN() + " not found in the local repository"));
+            }
+        }
+        for (CellerySourceScanner.ReferenceKeyUsage keyUsage : scanResult.getReferenceKeyUsages()) {
+            String imageFQN = scanResult.resolveImageFQN(keyUsage);
+            Image image = imageFQN == null ? null : imageResolver.apply(imageFQN);
+            Map<String, String> referenceKeys = image == null ? null : image.getReferenceKeys();
+            if (referenceKeys != null && !referenceKeys.containsKey(keyUsage.getKey())) {
+                diagnostics.add(createDiagnostic(keyUsage.getRange(), MISSING_REFERENCE_KEY_CODE,
+                        "Reference key \"" + keyUsage.getKey() + "\" is not exposed by Cellery Image " + imageFQN));
+            }
+        }
+        return diagnostics;
+    }
+
+    private static Diagnostic createDiagnostic(Range range, String code, String message) {
+        return new Diagnostic(range, message, DiagnosticSeverity.Warning, DIAGNOSTICS_SOURCE, code);
+    }
+}
@@ -22,15 +22,17 @@ import java.util.List;
 
 /**
  * Component Metadata model.
+ *
+ * Instances are shared among all the image versions with the same metadata and therefore should not be modified.
  */
 public class ComponentMetadata {
-    private List<String> ingressTypes;
+    private final List<String> ingressTypes;
 
-    public List<String> getIngressTypes() {
-        return ingressTypes;
+    public ComponentMetadata(List<String> ingressTypes) {
+        this.ingressTypes = ingressTypes;
     }
 
-    public void setIngressTypes(List<String> ingressTypes) {
-        this.ingressTypes = ingressTypes;
+    public List<String> getIngressTypes() {
+        return ingressTypes;
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Detector of Cellery Image files which are still being written to the local repository.
+ *
+ * A zip is written with its end of central directory record last. Therefore an image file is considered settled
+ * once the record is found at the end of the file and points to a central directory right before it. Files without
+ * a complete central directory are considered to be in the middle of a write (by cellery pull or cellery build)
+ * until they have not been modified for a while, after which they are treated as broken images.
+ */
+final class ImageFileSettleDetector {
+    private static final Logger logger = LoggerFactory.getLogger(ImageFileSettleDetector.class);
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    // The end of central directory record followed by the maximum zip comment length
+    private static final int TAIL_SIZE = END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF;
+    // Time without modifications after which an image file without a central directory is treated as broken
+    private static final long UNFINISHED_WRITE_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * Get the time to wait before an image file can be read.
+     *
+     * @param imageFile The image file
+     * @param settleWindowMillis The time to wait before checking a file which is being written again
+     * @return Zero if the file is settled (or does not exist), or the milliseconds to wait before checking again
+     */
+    static long getSettleDelayMillis(File imageFile, long settleWindowMillis) {
+        long lastModified = imageFile.lastModified();
+        if (lastModified == 0 || hasCompleteCentralDirectory(imageFile)) {
+            return 0;
+        }
+        long idleMillis = System.currentTimeMillis() - lastModified;
+        return idleMillis < UNFINISHED_WRITE_TIMEOUT_MILLIS ? settleWindowMillis : 0;
+    }
+
+    /**
+     * Check whether an image file ends with the central directory of the zip.
+     *
+     * @param imageFile The image file
+     * @return True if the end of central directory record refers to a central directory ending right before it
+     */
+    private static boolean hasCompleteCentralDirectory(File imageFile) {
+        try (RandomAccessFile file = new RandomAccessFile(imageFile, "r")) {
+            long fileSize = file.length();
+            int tailSize = (int) Math.min(fileSize, TAIL_SIZE);
+            if (tailSize < END_OF_CENTRAL_DIRECTORY_SIZE) {
+                return false;
+            }
+            long tailOffset = fileSize - tailSize;
+            byte[] tail = new byte[tailSize];
+            file.seek(tailOffset);
+            file.readFully(tail);
+
+            ByteBuffer tailBuffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+                if (tailBuffer.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    int commentLength = Short.toUnsignedInt(tailBuffer.getShort(i + 20));
+                    long centralDirectorySize = Integer.toUnsignedLong(tailBuffer.getInt(i + 12));
+                    long centralDirectoryOffset = Integer.toUnsignedLong(tailBuffer.getInt(i + 16));
+                    long endOfCentralDirectoryOffset = tailOffset + i;
+                    if (endOfCentralDirectoryOffset + END_OF_CENTRAL_DIRECTORY_SIZE + commentLength == fileSize
+                            && (centralDirectoryOffset + centralDirectorySize == endOfCentralDirectoryOffset
+                            || centralDirectoryOffset == 0xFFFFFFFFL)) {  // Zip64 offsets are not validated
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to check whether Cellery Image file " + imageFile + " is settled", e);
+        }
+        return false;
+    }
+
+    private ImageFileSettleDetector() {    // Prevent initialization
+    }
+}
@@ -18,9 +18,9 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.images;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.CompletionMetrics;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.Tracer;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,16 +28,29 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -46,98 +59,155 @@ import java.util.zip.ZipFile;
  */
 public class ImageManager {
     private static final Logger logger = LoggerFactory.getLogger(ImageManager.class);
-    private static final Executor executor = Executors.newWorkStealingPool();
-    private static final ImageManager instance = new ImageManager();
+    // Time after the last request of an image during which the image is kept fresh in the background
+    private static final long RECENT_USE_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final ForkJoinPool executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    private static final ImagePayloadPool payloadPool = new ImagePayloadPool();
+    private static final ImagePayloadArena payloadArena =
+            Boolean.getBoolean(Constants.SystemProperties.IMAGE_OFF_HEAP_STORAGE) ? new ImagePayloadArena() : null;
 
-    private final Map<String, Image> images = new HashMap<>();
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ImageMetadataIndex metadataIndex = new ImageMetadataIndex();
+    private final Map<String, CompletableFuture<Image>> inFlightImageRequests = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentlyUsedImages = new ConcurrentHashMap<>();
+    private final Set<String> pendingPulls = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Image>> pendingSettledImageLoads = new ConcurrentHashMap<>();
+    private final long settleWindow = Long.getLong(Constants.SystemProperties.IMAGE_SETTLE_WINDOW, 500);
+    private final long freshnessWindowNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(Constants.SystemProperties.IMAGE_FRESHNESS_WINDOW, 2000));
+    private final long localRepoScanInterval = Long.getLong(Constants.SystemProperties.LOCAL_REPO_SCAN_INTERVAL,
+            5000);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "cellery-image-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SharedImageIndex sharedIndex = new SharedImageIndex(new File(Constants.SHARED_IMAGE_INDEX_FILE),
+            executor);
+    private final LocalRepoScanner localRepoScanner = new LocalRepoScanner(
+            new File(Constants.LOCAL_REPO_DIRECTORY), executor);
+    private final RemoteMetadataFetcher remoteMetadataFetcher = Constants.REMOTE_IMAGE_URL == null
+            ? null
+            : new RemoteMetadataFetcher(Constants.REMOTE_IMAGE_URL);
+
+    private ImageManager() {
+        scheduler.scheduleWithFixedDelay(this::syncWithLocalRepo, 0, localRepoScanInterval, TimeUnit.MILLISECONDS);
+        if (freshnessWindowNanos > 0) {
+            scheduler.scheduleWithFixedDelay(this::revalidateIdleImages, freshnessWindowNanos, freshnessWindowNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
 
     public static ImageManager getInstance() {
-        return instance;
+        return InstanceHolder.instance;
     }
 
     /**
-     * Get a Cellery image.
+     * Get a set of Cellery images in one pass waiting at most for the given time.
      *
-     * If the image does not exist in the local repository it will be automatically pulled.
+     * The images already in memory are checked against the local repository and the missing or changed images are
+     * loaded in parallel. Images which are neither in the local repository nor in the shared image index are pulled
+     * together in the background, while images of which the image files are still being written are waited for
+     * instead of being pulled. If some images cannot be loaded in time, the work continues in the background and the
+     * images currently in memory (which may be outdated) are used instead.
      *
-     * @param orgName The name of the organization the image belongs to
-     * @param imageName The name of the image
-     * @param version The version of the image
-     * @return The image from which information had be extracted
+     * @param imageFQNs The fully qualified names of the images
+     * @param timeoutNanos The maximum time to wait in nanoseconds
+     * @return The resolution of the images
      */
-    public synchronized Image getImage(String orgName, String imageName, String version) {
-        String imageFQN = getImageFQN(orgName, imageName, version);
-        Image image = images.get(imageFQN);
+    public ImageResolution getImages(Collection<String> imageFQNs, long timeoutNanos) {
+        Tracer.Span span = Tracer.start("ImageManager.getImages");
+        Map<String, CompletableFuture<Image>> imageRequests = new HashMap<>();
+        for (String imageFQN : imageFQNs) {
+            String[] imageFQNParts = splitImageFQN(imageFQN);
+            if (imageFQNParts != null && !imageRequests.containsKey(imageFQN)) {
+                recordImageUse(imageFQN);
+                imageRequests.put(imageFQN, requestImage(imageFQNParts[0], imageFQNParts[1], imageFQNParts[2]));
+            }
+        }
 
-        // Ensuring that the actual image and the last image of which information was collected is equal
-        if (image == null) {
-            File imageFile = new File(Constants.LOCAL_REPO_DIRECTORY + File.separator + orgName
-                    + File.separator + imageName + File.separator + version + File.separator
-                    + imageName + Constants.CELLERY_IMAGE_EXTENSION);
-            if (imageFile.exists()) {
-                image = initializeImageFromLocalRepo(orgName, imageName, version);
+        boolean isComplete = true;
+        try {
+            CompletableFuture.allOf(imageRequests.values().toArray(new CompletableFuture<?>[0]))
+                    .get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            isComplete = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isComplete = false;
+        } catch (ExecutionException e) {
+            logger.error("Failed to get Cellery Images " + imageFQNs, e.getCause());
+        }
+
+        Map<String, Image> resolvedImages = new HashMap<>();
+        List<String> missingImageFQNs = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Image>> imageRequestEntry : imageRequests.entrySet()) {
+            CompletableFuture<Image> imageRequest = imageRequestEntry.getValue();
+            Image image;
+            if (imageRequest.isDone()) {
+                image = imageRequest.isCompletedExceptionally() ? null : imageRequest.join();
+                if (image == null && !imageRequest.isCompletedExceptionally()) {
+                    missingImageFQNs.add(imageRequestEntry.getKey());
+                }
             } else {
-                pullImage(orgName, imageName, version);
+                image = images.get(imageRequestEntry.getKey());
+            }
+            if (image != null) {
+                resolvedImages.put(imageRequestEntry.getKey(), image);
             }
-        } else if (image.getCurrentDigest() == null) {  // Previous image had been deleted
-            images.remove(imageFQN);
-            pullImage(orgName, imageName, version);
-        } else if (!Arrays.equals(image.getCurrentDigest(), image.getLastKnownDigest())) {
-            image.extractInformation();
         }
-        return image;
+        pullImages(missingImageFQNs);
+        span.end();
+        return new ImageResolution(resolvedImages, isComplete);
     }
 
     /**
-     * Get the images collections currently kept in memory.
+     * Load images into memory in the background without waiting for them.
      *
-     * @return The images collection.
+     * Images which are not in the local repository or the shared image index are not pulled.
+     *
+     * @param imageFQNs The fully qualified names of the images
      */
-    public synchronized Collection<Image> getImages() {
-        syncWithLocalRepo();
-        return images.values();
+    public void prefetchImages(Collection<String> imageFQNs) {
+        for (String imageFQN : imageFQNs) {
+            String[] imageFQNParts = splitImageFQN(imageFQN);
+            if (imageFQNParts != null && !images.containsKey(imageFQN)) {
+                requestImage(imageFQNParts[0], imageFQNParts[1], imageFQNParts[2]);
+            }
+        }
     }
 
     /**
-     * Start a thread which periodically checks the local repository for changes.
+     * Load the images in the local repository matching a partially typed image name in the background.
+     *
+     * @param orgPrefix The typed organization or its prefix if the image name is not typed yet
+     * @param namePrefix The prefix of the image name or null if only the organization is being typed
+     * @param limit The maximum number of images to be loaded
      */
-    private void syncWithLocalRepo() {
-        for (Map.Entry<String, Image> imageEntry : images.entrySet()) {
-            if (imageEntry.getValue().getCurrentDigest() == null) {
-                images.remove(imageEntry.getKey());
-            }
-        }
-
-        File localRepo = new File(Constants.LOCAL_REPO_DIRECTORY);
-        File[] orgDirectories = localRepo.listFiles();
+    public void prefetchMatchingImages(String orgPrefix, String namePrefix, int limit) {
+        File[] orgDirectories = new File(Constants.LOCAL_REPO_DIRECTORY).listFiles((directory, orgName) ->
+                namePrefix == null ? orgName.startsWith(orgPrefix) : orgName.equals(orgPrefix));
+        int prefetchCount = 0;
         if (orgDirectories != null) {
-            // Looping organizations
             for (File orgDirectory : orgDirectories) {
-                File[] imageDirectories = orgDirectory.listFiles();
+                File[] imageDirectories = orgDirectory.listFiles((directory, imageName) ->
+                        namePrefix == null || imageName.startsWith(namePrefix));
                 if (imageDirectories != null) {
-                    // Looping images in an organization
                     for (File imageDirectory : imageDirectories) {
-                        File[] versionDirectories = imageDirectory.listFiles();
-                        if (versionDirectories != null) {
-                            // Looping versions in a image
-                            for (File versionDirectory : versionDirectories) {
-                                if (versionDirectory.exists() && versionDirectory.isDirectory()) {
-                                    executor.execute(() -> {
-                                        String org = orgDirectory.getName();
-                                        String name = imageDirectory.getName();
-                                        String version = versionDirectory.getName();
-
-                                        synchronized (this) {
-                                            Image image = images.get(getImageFQN(org, name, version));
-                                            if (image == null) {
-                                                initializeImageFromLocalRepo(org, name, version);
-                                            } else if (!Arrays.equals(image.getCurrentDigest(),
-                                                    image.getLastKnownDigest())) {
-                                                image.extractInformation();
-                                            }
-                                        }
-                                    });
+                        String[] versions = imageDirectory.list();
+                        if (versions != null) {
+                            for (String version : versions) {
+                                if (prefetchCount >= limit) {
+                                    return;
+                                }
+                                String imageFQN = getImageFQN(orgDirectory.getName(), imageDirectory.getName(),
+                                        version);
+                                if (!images.containsKey(imageFQN)) {
+                                    requestImage(orgDirectory.getName(), imageDirectory.getName(), version);
                                 }
+                                prefetchCount++;
                             }
                         }
                     }
@@ -147,44 +217,552 @@ public class ImageManager {
     }
 
     /**
-     * Pull Image from remote registry.
+     * Read a Cellery image directly from the local repository.
+     *
+     * Unlike {@link #getImages(Collection, long)} the image is not kept in memory, published to the shared image
+     * index or pulled, and the image manager is not started. This is meant for short lived tools which only need the
+     * images they refer to and should not scan the local repository.
+     *
+     * @param imageFQN The fully qualified name of the image
+     * @return The image or null if the image is not in the local repository or could not be read
+     */
+    public static Image readLocalImage(String imageFQN) {
+        String[] imageFQNParts = splitImageFQN(imageFQN);
+        if (imageFQNParts == null || !getImageFile(imageFQNParts[0], imageFQNParts[1], imageFQNParts[2]).exists()) {
+            return null;
+        }
+        Image image = new Image(imageFQNParts[0], imageFQNParts[1], imageFQNParts[2]);
+        return image.extractInformation() == null ? null : image;
+    }
+
+    /**
+     * Get the generation of the images in memory.
+     *
+     * The generation changes whenever an image is added, refreshed or removed.
+     *
+     * @return The current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Record a change of an image by updating the metadata index with the current metadata of the image and moving
+     * to the next generation.
+     *
+     * This should be called while holding the lock of the image manager, so that the metadata index is updated in the
+     * same order as the images in memory change.
+     *
+     * @param imageFQN The fully qualified name of the changed image
+     */
+    private void recordImageChange(String imageFQN) {
+        Image image = images.get(imageFQN);
+        metadataIndex.update(imageFQN, image == null ? null : image.getMetadata());
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Find the images of a kind among the images in memory.
+     *
+     * @param kind The kind of the images (Cell or Composite)
+     * @return The images of the kind
+     */
+    public List<Image> findImagesOfKind(String kind) {
+        return findImages(metadataIndex.getImagesOfKind(kind));
+    }
+
+    /**
+     * Find the images with at least one component exposing an ingress type among the images in memory.
+     *
+     * @param ingressType The ingress type (for example HTTP)
+     * @return The images exposing the ingress type
+     */
+    public List<Image> findImagesWithIngressType(String ingressType) {
+        return findImages(metadataIndex.getImagesWithIngressType(ingressType));
+    }
+
+    /**
+     * Find the images containing a component among the images in memory.
+     *
+     * @param componentName The name of the component
+     * @return The images containing the component
+     */
+    public List<Image> findImagesWithComponent(String componentName) {
+        return findImages(metadataIndex.getImagesWithComponent(componentName));
+    }
+
+    /**
+     * Find the images in memory with the given fully qualified names.
+     *
+     * @param imageFQNs The fully qualified names of the images
+     * @return The images which are in memory
+     */
+    private List<Image> findImages(Collection<String> imageFQNs) {
+        List<Image> foundImages = new ArrayList<>(imageFQNs.size());
+        for (String imageFQN : imageFQNs) {
+            Image image = images.get(imageFQN);
+            if (image != null) {
+                foundImages.add(image);
+            }
+        }
+        return foundImages;
+    }
+
+    /**
+     * Get the images collections currently kept in memory.
+     *
+     * The local repository is scanned periodically in the background, so this does not touch the file system.
+     *
+     * @return The images collection.
+     */
+    public Collection<Image> getImages() {
+        return images.values();
+    }
+
+    /**
+     * Sync the images in memory with the local repository.
+     *
+     * This runs periodically on the scheduler instead of on the completion path, as walking large repositories on
+     * network file systems can take seconds. Only the new and changed image directories are loaded, and only the
+     * images of the directories the scanner found removed are removed from memory.
+     */
+    private void syncWithLocalRepo() {
+        Tracer.Span span = Tracer.start("ImageManager.syncWithLocalRepo");
+        try {
+            sharedIndex.refresh();
+            localRepoScanner.scan(this::requestImage, this::removeLocalImages);
+        } catch (RuntimeException e) {
+            // Failures must not cancel the subsequent scans
+            logger.warn("Failed to sync with the local Cellery repository", e);
+        }
+        span.end();
+    }
+
+    /**
+     * Record that an image was requested, so that it is kept fresh in the background for a while.
+     *
+     * @param imageFQN The fully qualified name of the image
+     */
+    private void recordImageUse(String imageFQN) {
+        recentlyUsedImages.put(imageFQN, System.nanoTime());
+    }
+
+    /**
+     * Revalidate the recently used images in memory which had not been checked within the freshness window.
+     *
+     * This runs periodically in the background and is skipped while images are being loaded for requests, so that the
+     * images being worked with are usually already fresh when they are requested again. Other images are only checked
+     * when they are requested, as checking an image may read the entire image file.
+     */
+    private void revalidateIdleImages() {
+        if (!inFlightImageRequests.isEmpty()) {
+            return;
+        }
+        long currentTime = System.nanoTime();
+        Iterator<Map.Entry<String, Long>> recentlyUsedImagesIterator = recentlyUsedImages.entrySet().iterator();
+        while (recentlyUsedImagesIterator.hasNext()) {
+            Map.Entry<String, Long> recentlyUsedImageEntry = recentlyUsedImagesIterator.next();
+            Image image = images.get(recentlyUsedImageEntry.getKey());
+            if (currentTime - recentlyUsedImageEntry.getValue() >= RECENT_USE_WINDOW_NANOS) {
+                recentlyUsedImagesIterator.remove();
+            } else if (image != null && !image.isCheckedWithin(freshnessWindowNanos)) {
+                requestImage(image.getOrg(), image.getName(), image.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Request loading an image in the background.
+     *
+     * Concurrent requests for the same image share the same work. Images in memory which had been checked against the
+     * local repository within the freshness window are served without checking them again.
      *
      * @param orgName The name of the organization the image belongs to
      * @param imageName The name of the image
      * @param version The version of the image
+     * @return The future of the loaded image
      */
-    private void pullImage(String orgName, String imageName, String version) {
-        executor.execute(() -> {
+    private CompletableFuture<Image> requestImage(String orgName, String imageName, String version) {
+        return requestImage(orgName, imageName, version, false);
+    }
+
+    /**
+     * Request loading an image in the background.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @param force True if the image should be checked even if it had been checked within the freshness window
+     * @return The future of the loaded image
+     */
+    private CompletableFuture<Image> requestImage(String orgName, String imageName, String version, boolean force) {
+        String imageFQN = getImageFQN(orgName, imageName, version);
+        Image currentImage = images.get(imageFQN);
+        if (!force && currentImage != null && currentImage.isCheckedWithin(freshnessWindowNanos)) {
+            return CompletableFuture.completedFuture(currentImage);
+        }
+        CompletableFuture<Image> imageRequest = inFlightImageRequests.computeIfAbsent(imageFQN,
+                (key) -> loadImageInBackground(orgName, imageName, version));
+        imageRequest.whenComplete((image, throwable) -> inFlightImageRequests.remove(imageFQN, imageRequest));
+        return imageRequest;
+    }
+
+    /**
+     * Load an image on the executor.
+     *
+     * The allocation of the load is attributed to the completion request being served by the calling thread.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return The future of the loaded image which completes once a new image file had settled
+     */
+    private CompletableFuture<Image> loadImageInBackground(String orgName, String imageName, String version) {
+        CompletionMetrics.Sample metricsSample = CompletionMetrics.getCurrentSample();
+        return CompletableFuture.supplyAsync(() -> metricsSample.attribute(() -> {
+            Tracer.Span span = Tracer.start("ImageManager.loadImage", getImageFQN(orgName, imageName, version));
             try {
-                Process process = Runtime.getRuntime()
-                        .exec(String.format(Constants.CELLERY_PULL_COMMAND, orgName, imageName, version));
-                int exitCode = process.waitFor();
-                if (exitCode == 0) {
-                    initializeImageFromLocalRepo(orgName, imageName, version);
+                return loadImage(orgName, imageName, version);
+            } finally {
+                span.end();
+            }
+        }), executor).thenCompose(Function.identity());
+    }
+
+    /**
+     * Load an image into memory or refresh it if the image in the local repository had changed.
+     *
+     * The registry is not locked while reading the image file, so that multiple images can be loaded in parallel. The
+     * shared image index is only refreshed by the periodic sync, so that loading does not wait on the index file.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return The future of the image, which completes with null if the image is neither in the local repository nor
+     *         fetched from the remote registry, or completes once the image file had settled if a new image file is
+     *         still being written
+     */
+    private CompletableFuture<Image> loadImage(String orgName, String imageName, String version) {
+        long checkTime = System.nanoTime();
+        String imageFQN = getImageFQN(orgName, imageName, version);
+        Image image = images.get(imageFQN);
+        boolean imageFileExists = getImageFile(orgName, imageName, version).exists();
+        if (image != null && !image.isRemote()) {
+            // Ensuring that the actual image and the last image of which information was collected is equal
+            if (!image.isImageFileUnchanged()) {
+                if (isImageFileBeingWritten(image.imageFile)) {
+                    // The previous image is served until the new image file is read
+                    scheduleSettledImageLoad(orgName, imageName, version);
+                    return CompletableFuture.completedFuture(image);
+                }
+                byte[] currentDigest = image.getCurrentDigest();
+                if (currentDigest == null) {  // Previous image had been deleted
+                    removeImage(image);
+                    image = null;
+                } else if (!Arrays.equals(currentDigest, image.getLastKnownDigest())) {
+                    refreshImage(image, currentDigest);
                 } else {
-                    logger.error("Failed to pull Cellery Image with exit code " + exitCode);
+                    image.recordImageFileState();
                 }
-            } catch (IOException | InterruptedException e) {
-                logger.error("Failed to fetch image " + getImageFQN(orgName, imageName, version), e);
             }
+        } else if (imageFileExists) {   // New image or the entire image had been pulled after fetching metadata
+            if (isImageFileBeingWritten(getImageFile(orgName, imageName, version))) {
+                // The image is pending instead of missing, so that it is not pulled while being written
+                return image == null
+                        ? scheduleSettledImageLoad(orgName, imageName, version)
+                        : CompletableFuture.completedFuture(image);
+            }
+            image = initializeImageFromLocalRepo(orgName, imageName, version);
+        } else if (image == null) {
+            image = initializeImageFromSharedIndex(orgName, imageName, version);
+        }
+        if (image != null) {
+            image.markChecked(checkTime);
+        }
+        return CompletableFuture.completedFuture(image);
+    }
+
+    /**
+     * Check whether an image file is still being written to the local repository (by cellery pull or cellery build).
+     *
+     * @param imageFile The image file
+     * @return True if the image file should not be read yet
+     */
+    private boolean isImageFileBeingWritten(File imageFile) {
+        return ImageFileSettleDetector.getSettleDelayMillis(imageFile, settleWindow) > 0;
+    }
+
+    /**
+     * Load an image again once its image file had settled.
+     *
+     * Loads requested while a load of the same image is already scheduled are coalesced into the scheduled load,
+     * which reschedules itself until the image file is no longer being written.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return The future of the image loaded once the image file had settled
+     */
+    private CompletableFuture<Image> scheduleSettledImageLoad(String orgName, String imageName, String version) {
+        String imageFQN = getImageFQN(orgName, imageName, version);
+        return pendingSettledImageLoads.computeIfAbsent(imageFQN, (key) -> {
+            CompletableFuture<Image> settledImageLoad = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                pendingSettledImageLoads.remove(imageFQN, settledImageLoad);
+                // Not shared through the in flight requests, as those may be waiting for this load
+                loadImageInBackground(orgName, imageName, version).whenComplete((image, throwable) -> {
+                    if (throwable == null) {
+                        settledImageLoad.complete(image);
+                    } else {
+                        settledImageLoad.completeExceptionally(throwable);
+                    }
+                });
+            }, settleWindow, TimeUnit.MILLISECONDS);
+            return settledImageLoad;
         });
     }
 
+    /**
+     * Remove the images in memory of a directory removed from the local repository.
+     *
+     * Images fetched from the remote registry are kept, as they are not in the local repository.
+     *
+     * @param orgName The name of the removed organization
+     * @param imageName The name of the removed image or null if the entire organization was removed
+     * @param version The removed version or null if the entire image was removed
+     */
+    private void removeLocalImages(String orgName, String imageName, String version) {
+        List<Image> removedImages = new ArrayList<>();
+        if (imageName != null && version != null) {
+            Image image = images.get(getImageFQN(orgName, imageName, version));
+            if (image != null) {
+                removedImages.add(image);
+            }
+        } else {
+            for (Image image : images.values()) {
+                if (image.getOrg().equals(orgName) && (imageName == null || image.getName().equals(imageName))) {
+                    removedImages.add(image);
+                }
+            }
+        }
+        for (Image image : removedImages) {
+            if (!image.isRemote()) {
+                removeImage(image);
+            }
+        }
+    }
+
+    /**
+     * Remove an image which had been deleted from the local repository.
+     *
+     * @param image The image to be removed
+     */
+    private synchronized void removeImage(Image image) {
+        if (images.remove(image.getFQN(), image)) {
+            sharedIndex.remove(image.getFQN());
+            recordImageChange(image.getFQN());
+        }
+    }
+
+    /**
+     * Add a loaded image to the images in memory.
+     *
+     * @param image The loaded image
+     * @return The added image
+     */
+    private synchronized Image addImage(Image image) {
+        images.put(image.getFQN(), image);
+        recordImageChange(image.getFQN());
+        return image;
+    }
+
+    /**
+     * Pull images from the remote registry as a group in the background.
+     *
+     * Images which are already being pulled are skipped.
+     *
+     * @param imageFQNs The fully qualified names of the images to be pulled
+     */
+    private void pullImages(Collection<String> imageFQNs) {
+        List<String> newPulls = new ArrayList<>();
+        for (String imageFQN : imageFQNs) {
+            if (pendingPulls.add(imageFQN)) {
+                newPulls.add(imageFQN);
+            }
+        }
+        if (!newPulls.isEmpty()) {
+            executor.execute(() -> {
+                for (String imageFQN : newPulls) {
+                    Tracer.Span span = Tracer.start("ImageManager.pullImage", imageFQN);
+                    try {
+                        String[] imageFQNParts = splitImageFQN(imageFQN);
+                        if (imageFQNParts != null) {
+                            pullImage(imageFQNParts[0], imageFQNParts[1], imageFQNParts[2]);
+                        }
+                    } finally {
+                        pendingPulls.remove(imageFQN);
+                        span.end();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Pull Image from remote registry.
+     *
+     * Only the reference and the metadata of the image are fetched if a registry URL is configured. The entire image
+     * is pulled if fetching them fails.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     */
+    private void pullImage(String orgName, String imageName, String version) {
+        if (remoteMetadataFetcher != null && fetchRemoteImage(orgName, imageName, version)) {
+            return;
+        }
+        try {
+            Process process = Runtime.getRuntime()
+                    .exec(String.format(Constants.CELLERY_PULL_COMMAND, orgName, imageName, version));
+            int exitCode = process.waitFor();
+            if (exitCode == 0 && getImageFile(orgName, imageName, version).exists()) {
+                initializeImageFromLocalRepo(orgName, imageName, version);
+            } else {
+                logger.error("Failed to pull Cellery Image with exit code " + exitCode);
+            }
+        } catch (IOException | InterruptedException e) {
+            logger.error("Failed to fetch image " + getImageFQN(orgName, imageName, version), e);
+        }
+    }
+
+    /**
+     * Fetch the reference and the metadata of an image from the remote registry.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return True if the information of the image was fetched
+     */
+    private boolean fetchRemoteImage(String orgName, String imageName, String version) {
+        String imageFQN = getImageFQN(orgName, imageName, version);
+        try {
+            Map<String, String> entries = remoteMetadataFetcher.fetch(orgName, imageName, version,
+                    Arrays.asList(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY,
+                            Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY));
+            SharedImageIndex.Entry indexEntry = new SharedImageIndex.Entry(imageFQN,
+                    SharedImageIndex.Entry.REMOTE_IMAGE_FILE_SIZE, 0, new byte[0],
+                    entries.get(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY),
+                    entries.get(Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY));
+            synchronized (this) {
+                Image image = new Image(orgName, imageName, version);
+                if (image.loadInformation(indexEntry) && !images.containsKey(imageFQN)) {
+                    images.put(imageFQN, image);
+                    publishToSharedIndex(indexEntry);
+                    recordImageChange(imageFQN);
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to fetch the metadata of Cellery Image " + imageFQN + " from the remote registry", e);
+            return false;
+        }
+    }
+
+    /**
+     * Initialize an image which is not in the local repo from information previously fetched from the remote registry.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return The image or null if the shared image index does not contain fetched information of the image
+     */
+    private Image initializeImageFromSharedIndex(String orgName, String imageName, String version) {
+        Image image = new Image(orgName, imageName, version);
+        SharedImageIndex.Entry indexEntry = sharedIndex.getEntry(image.getFQN());
+        if (indexEntry == null || !indexEntry.isRemote() || !image.loadInformation(indexEntry)) {
+            return null;
+        }
+        return addImage(image);
+    }
+
     /**
      * Initialize an image in the local repo.
      *
-     * Relevant information will be extracted from the image as well.
+     * Relevant information will be taken from the shared image index if another language server had already
+     * extracted it from the same image file. Otherwise it will be extracted from the image and added to the index.
      *
      * @param orgName The name of the organization the image belongs to
      * @param imageName The name of the image
      * @param version The version of the image
      * @return The image from from the local repository with information extracted
      */
-    private synchronized Image initializeImageFromLocalRepo(String orgName, String imageName, String version) {
+    private Image initializeImageFromLocalRepo(String orgName, String imageName, String version) {
         Image image = new Image(orgName, imageName, version);
-        image.extractInformation();
-        images.put(getImageFQN(orgName, imageName, version), image);
-        return image;
+        SharedImageIndex.Entry indexEntry = sharedIndex.getEntry(image.getFQN());
+        if (indexEntry == null || !indexEntry.matches(image.imageFile) || !image.loadInformation(indexEntry)) {
+            publishToSharedIndex(image.extractInformation());
+        }
+        return addImage(image);
+    }
+
+    /**
+     * Refresh the information of an image which had changed in the local repo.
+     *
+     * @param image The image to be refreshed
+     * @param currentDigest The digest of the current image file
+     */
+    private void refreshImage(Image image, byte[] currentDigest) {
+        SharedImageIndex.Entry indexEntry = sharedIndex.getEntry(image.getFQN());
+        if (indexEntry == null || !Arrays.equals(indexEntry.getDigest(), currentDigest)
+                || !image.loadInformation(indexEntry)) {
+            publishToSharedIndex(image.extractInformation());
+        }
+        synchronized (this) {
+            recordImageChange(image.getFQN());
+        }
+    }
+
+    /**
+     * Publish information extracted by this language server to the shared image index.
+     *
+     * @param indexEntry The extracted information or null if the extraction failed
+     */
+    private void publishToSharedIndex(SharedImageIndex.Entry indexEntry) {
+        if (indexEntry != null) {
+            sharedIndex.update(indexEntry);
+        }
+    }
+
+    /**
+     * Get the file of an image in the local repository.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @return The image file
+     */
+    private static File getImageFile(String orgName, String imageName, String version) {
+        return new File(Constants.LOCAL_REPO_DIRECTORY + File.separator + orgName
+                + File.separator + imageName + File.separator + version + File.separator
+                + imageName + Constants.CELLERY_IMAGE_EXTENSION);
+    }
+
+    /**
+     * Split the fully qualified name of an image.
+     *
+     * @param imageFQN The fully qualified name of the image (org/name:version)
+     * @return The org, name and version of the image or null if the name is not fully qualified
+     */
+    private static String[] splitImageFQN(String imageFQN) {
+        String[] versionSplit = imageFQN.split(":");
+        if (versionSplit.length == 2) {
+            String[] imageSplit = versionSplit[0].split("/");
+            if (imageSplit.length == 2) {
+                return new String[]{imageSplit[0], imageSplit[1], versionSplit[1]};
+            }
+        }
+        return null;
     }
 
     /**
@@ -199,38 +777,89 @@ public class ImageManager {
         return orgName + "/" + imageName + ":" + version;
     }
 
+    /**
+     * Result of resolving a set of images.
+     */
+    public static class ImageResolution {
+        private final Map<String, Image> images;
+        private final boolean isComplete;
+
+        private ImageResolution(Map<String, Image> images, boolean isComplete) {
+            this.images = images;
+            this.isComplete = isComplete;
+        }
+
+        /**
+         * Get the resolved images.
+         *
+         * @return The resolved images with the image FQNs as keys
+         */
+        public Map<String, Image> getImages() {
+            return images;
+        }
+
+        /**
+         * Check whether all the images were loaded before the timeout.
+         *
+         * @return True if no image was left loading in the background
+         */
+        public boolean isComplete() {
+            return isComplete;
+        }
+    }
+
     /**
      * Represents a Cellery image.
+     *
+     * The information extracted from the image is held in an immutable {@link Snapshot} which is replaced as a whole
+     * when the image changes. Readers therefore never block and always see information from a single extraction.
      */
     public static class Image {
         private static final Logger logger = LoggerFactory.getLogger(Image.class);
-        private static final Gson gson = new Gson();
-        private static final Type referenceTypeToken = new ReferenceTypeToken().getType();
+        private static final int DIGEST_BUFFER_SIZE = 8192;
 
         private String org;
         private String name;
         private String version;
         private File imageFile;
-        private byte[] lastKnownDigest;
-        private Map<String, String> referenceKeys;
-        private Metadata metadata;
+        private volatile Snapshot snapshot;
+        private volatile long lastCheckedTime;
 
         private Image(String orgName, String imageName, String version) {
             this.org = orgName;
             this.name = imageName;
             this.version = version;
-            this.lastKnownDigest = new byte[0];
-            this.imageFile = new File(Constants.LOCAL_REPO_DIRECTORY + File.separator + orgName
-                    + File.separator + imageName + File.separator + version + File.separator
-                    + imageName + Constants.CELLERY_IMAGE_EXTENSION);
+            this.snapshot = Snapshot.EMPTY;
+            this.lastCheckedTime = System.nanoTime();
+            this.imageFile = getImageFile(orgName, imageName, version);
+        }
+
+        /**
+         * Get the current information of the image.
+         *
+         * Callers reading more than one piece of information should use a single snapshot to get consistent values.
+         *
+         * @return The current snapshot of the image
+         */
+        public Snapshot getSnapshot() {
+            return snapshot;
         }
 
-        public synchronized Map<String, String> getReferenceKeys() {
-            return referenceKeys;
+        public Map<String, String> getReferenceKeys() {
+            return snapshot.getReferenceKeys();
         }
 
-        public synchronized Metadata getMetadata() {
-            return metadata;
+        /**
+         * Get the index of the reference keys for looking up keys by prefix.
+         *
+         * @return The reference key index
+         */
+        public ReferenceKeyIndex getReferenceKeyIndex() {
+            return snapshot.getReferenceKeyIndex();
+        }
+
+        public Metadata getMetadata() {
+            return snapshot.getMetadata();
         }
 
         public String getOrg() {
@@ -249,8 +878,56 @@ public class ImageManager {
             return ImageManager.getImageFQN(org, name, version);
         }
 
-        private synchronized byte[] getLastKnownDigest() {
-            return lastKnownDigest;
+        /**
+         * Check whether the information of this image was fetched from the remote registry.
+         *
+         * @return True if the image is not in the local repository
+         */
+        private boolean isRemote() {
+            return snapshot.remote;
+        }
+
+        /**
+         * Check whether the image had been checked against the local repository recently.
+         *
+         * @param windowNanos The freshness window in nanoseconds
+         * @return True if the image was checked within the window
+         */
+        private boolean isCheckedWithin(long windowNanos) {
+            return System.nanoTime() - lastCheckedTime < windowNanos;
+        }
+
+        /**
+         * Record that the image was checked against the local repository.
+         *
+         * @param checkTime The time at which the check started
+         */
+        private void markChecked(long checkTime) {
+            lastCheckedTime = checkTime;
+        }
+
+        /**
+         * Check whether the image file is unchanged since information was last extracted or loaded.
+         *
+         * This only compares the size and the last modified time of the image file and does not read the file.
+         *
+         * @return True if the image file is unchanged
+         */
+        private boolean isImageFileUnchanged() {
+            Snapshot currentSnapshot = snapshot;
+            return imageFile.length() == currentSnapshot.imageFileSize
+                    && imageFile.lastModified() == currentSnapshot.imageFileLastModified;
+        }
+
+        /**
+         * Record the current size and last modified time of the image file.
+         */
+        private synchronized void recordImageFileState() {
+            snapshot = snapshot.withImageFileState(imageFile.length(), imageFile.lastModified());
+        }
+
+        private byte[] getLastKnownDigest() {
+            return snapshot.digest;
         }
 
         /**
@@ -259,49 +936,264 @@ public class ImageManager {
          * @return The digest of the Cellery Image
          */
         private byte[] getCurrentDigest() {
+            Tracer.Span span = Tracer.start("Image.getCurrentDigest", getFQN());
             byte[] digest = null;
             if (imageFile.exists()) {
-                try {
+                // The image file is streamed through the digest instead of being read into memory as a whole
+                try (InputStream inputStream = new FileInputStream(imageFile)) {
                     MessageDigest md5 = MessageDigest.getInstance("MD5");
-                    digest = md5.digest(IOUtils.toByteArray(new FileInputStream(imageFile)));
+                    byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+                    int readBytesCount;
+                    while ((readBytesCount = inputStream.read(buffer)) != -1) {
+                        md5.update(buffer, 0, readBytesCount);
+                    }
+                    digest = md5.digest();
                 } catch (IOException | NoSuchAlgorithmException e) {
                     logger.warn("Failed to get the digest of Cellery Image file " + imageFile, e);
                     digest = null;
                 }
             }
+            span.end();
             return digest;
         }
 
+        /**
+         * Index the reference keys of the image.
+         *
+         * The index of the current snapshot is reused if the keys had not changed.
+         *
+         * @param referenceKeys The reference keys of the image
+         * @return The reference key index
+         */
+        private ReferenceKeyIndex indexReferenceKeys(Map<String, String> referenceKeys) {
+            Payload currentPayload = snapshot.peekPayload();
+            if (currentPayload != null && referenceKeys == currentPayload.referenceKeys) {
+                return currentPayload.referenceKeyIndex;    // Pooled keys are the same instance if equal
+            }
+            return new ReferenceKeyIndex(referenceKeys.keySet());
+        }
+
+        /**
+         * Load information previously extracted from the image.
+         *
+         * @param indexEntry The shared image index entry of the image
+         * @return True if the information was loaded
+         */
+        private synchronized boolean loadInformation(SharedImageIndex.Entry indexEntry) {
+            boolean isLoaded = false;
+            try {
+                String referenceJson = indexEntry.getReferenceJson();
+                String metadataJson = indexEntry.getMetadataJson();
+                Map<String, String> indexedReferenceKeys = payloadPool.getReferenceKeys(referenceJson);
+                Metadata indexedMetadata = payloadPool.getMetadata(metadataJson);
+                snapshot = Snapshot.create(indexEntry.getDigest(), indexEntry.getImageFileSize(),
+                        indexEntry.getImageFileLastModified(), indexEntry.isRemote(), new Payload(indexedReferenceKeys,
+                                indexReferenceKeys(indexedReferenceKeys), indexedMetadata),
+                        referenceJson, metadataJson);
+                isLoaded = true;
+            } catch (IOException e) {
+                logger.warn("Ignoring malformed shared index entry of Cellery Image " + getFQN(), e);
+            }
+            return isLoaded;
+        }
+
         /**
          * Extract information from the image.
+         *
+         * The current snapshot is kept if the extraction fails, but the state of the broken image file is recorded so
+         * that it is not read again until it changes.
+         *
+         * @return The shared image index entry for the extracted information or null if extraction failed
          */
-        private synchronized void extractInformation() {
+        private synchronized SharedImageIndex.Entry extractInformation() {
+            Tracer.Span span = Tracer.start("Image.extractInformation", getFQN());
+            long imageFileSize = imageFile.length();
+            long imageFileLastModified = imageFile.lastModified();
             try (ZipFile celleryImageZip = new ZipFile(imageFile)) {
                 // Reading reference data
                 ZipEntry referenceJsonZipEntry = celleryImageZip.getEntry(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY);
                 String referenceJsonString = IOUtils.toString(celleryImageZip.getInputStream(referenceJsonZipEntry),
                         StandardCharsets.UTF_8);
-                referenceKeys = gson.fromJson(referenceJsonString, referenceTypeToken);
+                Map<String, String> extractedReferenceKeys = payloadPool.getReferenceKeys(referenceJsonString);
 
                 // Reading metadata
                 ZipEntry metadataJsonZipEntry = celleryImageZip.getEntry(Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY);
                 String metadataJsonString = IOUtils.toString(celleryImageZip.getInputStream(metadataJsonZipEntry),
                         StandardCharsets.UTF_8);
-                metadata = gson.fromJson(metadataJsonString, Metadata.class);
+                Metadata extractedMetadata = payloadPool.getMetadata(metadataJsonString);
 
-                lastKnownDigest = getCurrentDigest();
+                byte[] digest = getCurrentDigest();
+                if (digest != null) {
+                    snapshot = Snapshot.create(digest, imageFileSize, imageFileLastModified, false,
+                            new Payload(extractedReferenceKeys, indexReferenceKeys(extractedReferenceKeys),
+                                    extractedMetadata), referenceJsonString, metadataJsonString);
+                    span.end();
+                    return new SharedImageIndex.Entry(getFQN(), imageFileSize, imageFileLastModified, digest,
+                            referenceJsonString, metadataJsonString);
+                }
             } catch (IOException e) {
                 logger.error("Failed to read Cell Image zip " + imageFile.getAbsolutePath(), e);
+                snapshot = snapshot.withImageFileState(imageFileSize, imageFileLastModified);
             }
+            span.end();
+            return null;
         }
 
         /**
-         * Gson Type Token used for de-serializing Reference JSON.
+         * Immutable information extracted from a specific version of a Cellery Image file.
+         *
+         * The reference keys and the metadata are the shared immutable instances of the image payload pool. When
+         * off-heap storage is enabled, the snapshot only holds the handles of the raw JSON in the payload arena, and
+         * the payload is decoded when it is first needed and is only weakly held afterwards. The handles are released
+         * once the snapshot is garbage collected, so that replaced snapshots do not keep their contents off-heap.
          */
-        private static class ReferenceTypeToken extends TypeToken<Map<String, String>> {
+        public static final class Snapshot {
+            private static final Snapshot EMPTY = new Snapshot(new byte[0], 0, 0, false, Payload.EMPTY,
+                    ImagePayloadArena.NO_HANDLE, ImagePayloadArena.NO_HANDLE, null);
+
+            private final byte[] digest;
+            private final long imageFileSize;
+            private final long imageFileLastModified;
+            private final boolean remote;
+            private final Payload payload;
+            private final long referenceJsonHandle;
+            private final long metadataJsonHandle;
+            private volatile WeakReference<Payload> decodedPayload;
+
+            private Snapshot(byte[] digest, long imageFileSize, long imageFileLastModified, boolean remote,
+                             Payload payload, long referenceJsonHandle, long metadataJsonHandle,
+                             WeakReference<Payload> decodedPayload) {
+                this.digest = digest;
+                this.imageFileSize = imageFileSize;
+                this.imageFileLastModified = imageFileLastModified;
+                this.remote = remote;
+                this.payload = payload;
+                this.referenceJsonHandle = referenceJsonHandle;
+                this.metadataJsonHandle = metadataJsonHandle;
+                this.decodedPayload = decodedPayload;
+            }
+
+            /**
+             * Create a snapshot which stores the payload in the configured storage.
+             *
+             * @param digest The digest of the image file
+             * @param imageFileSize The size of the image file
+             * @param imageFileLastModified The last modified time of the image file
+             * @param remote True if the information was fetched from the remote registry
+             * @param payload The payload parsed from the reference and metadata JSON
+             * @param referenceJson The reference JSON the payload was parsed from
+             * @param metadataJson The metadata JSON the payload was parsed from
+             * @return The new snapshot
+             */
+            private static Snapshot create(byte[] digest, long imageFileSize, long imageFileLastModified,
+                                           boolean remote, Payload payload, String referenceJson,
+                                           String metadataJson) {
+                if (payloadArena == null) {
+                    return new Snapshot(digest, imageFileSize, imageFileLastModified, remote, payload,
+                            ImagePayloadArena.NO_HANDLE, ImagePayloadArena.NO_HANDLE, null);
+                } else {
+                    long referenceJsonHandle = payloadArena.store(referenceJson);
+                    long metadataJsonHandle = payloadArena.store(metadataJson);
+                    Snapshot snapshot = new Snapshot(digest, imageFileSize, imageFileLastModified, remote, null,
+                            referenceJsonHandle, metadataJsonHandle, new WeakReference<>(payload));
+                    payloadArena.releaseWhenCollected(snapshot, referenceJsonHandle, metadataJsonHandle);
+                    return snapshot;
+                }
+            }
+
+            /**
+             * Create a copy of this snapshot for an image file which was touched without changing its content.
+             *
+             * @param newImageFileSize The current size of the image file
+             * @param newImageFileLastModified The current last modified time of the image file
+             * @return The new snapshot
+             */
+            private Snapshot withImageFileState(long newImageFileSize, long newImageFileLastModified) {
+                Snapshot snapshot = new Snapshot(digest, newImageFileSize, newImageFileLastModified, remote, payload,
+                        referenceJsonHandle, metadataJsonHandle, decodedPayload);
+                if (payload == null) {
+                    // The copy holds its own references to the contents in the payload arena
+                    payloadArena.retain(referenceJsonHandle);
+                    payloadArena.retain(metadataJsonHandle);
+                    payloadArena.releaseWhenCollected(snapshot, referenceJsonHandle, metadataJsonHandle);
+                }
+                return snapshot;
+            }
+
+            /**
+             * Get the payload of the snapshot if it is already in memory.
+             *
+             * @return The payload or null if it had not been decoded yet or was collected after decoding
+             */
+            private Payload peekPayload() {
+                if (payload != null) {
+                    return payload;
+                }
+                WeakReference<Payload> decodedPayloadReference = decodedPayload;
+                return decodedPayloadReference == null ? null : decodedPayloadReference.get();
+            }
+
+            /**
+             * Get the payload of the snapshot, decoding it from the payload arena if it is not in memory.
+             *
+             * @return The payload
+             */
+            private Payload getPayload() {
+                Payload currentPayload = peekPayload();
+                if (currentPayload == null) {
+                    try {
+                        Map<String, String> referenceKeys = payloadPool.getReferenceKeys(
+                                payloadArena.read(referenceJsonHandle));
+                        currentPayload = new Payload(referenceKeys, new ReferenceKeyIndex(referenceKeys.keySet()),
+                                payloadPool.getMetadata(payloadArena.read(metadataJsonHandle)));
+                    } catch (IOException e) {
+                        // The stored JSON had been parsed successfully before being stored in the arena
+                        throw new IllegalStateException("Failed to decode Cellery Image information stored "
+                                + "off-heap", e);
+                    }
+                    // Written after reading the contents, which keeps the snapshot from being collected and its
+                    // handles from being released while they are read
+                    decodedPayload = new WeakReference<>(currentPayload);
+                }
+                return currentPayload;
+            }
+
+            public Map<String, String> getReferenceKeys() {
+                return getPayload().referenceKeys;
+            }
+
+            public ReferenceKeyIndex getReferenceKeyIndex() {
+                return getPayload().referenceKeyIndex;
+            }
+
+            public Metadata getMetadata() {
+                return getPayload().metadata;
+            }
+        }
+
+        /**
+         * Reference keys, reference key index and metadata of an image decoded together.
+         */
+        private static final class Payload {
+            private static final Payload EMPTY = new Payload(null, null, null);
+
+            private final Map<String, String> referenceKeys;
+            private final ReferenceKeyIndex referenceKeyIndex;
+            private final Metadata metadata;
+
+            private Payload(Map<String, String> referenceKeys, ReferenceKeyIndex referenceKeyIndex,
+                            Metadata metadata) {
+                this.referenceKeys = referenceKeys;
+                this.referenceKeyIndex = referenceKeyIndex;
+                this.metadata = metadata;
+            }
         }
     }
 
-    private ImageManager() {    // Prevent initialization
+    /**
+     * Holder of the image manager, so that the scheduled scans only start when the image manager is first used.
+     */
+    private static class InstanceHolder {
+        private static final ImageManager instance = new ImageManager();
     }
 }
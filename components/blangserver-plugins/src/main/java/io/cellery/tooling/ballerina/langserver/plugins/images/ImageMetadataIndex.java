@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Inverted indexes from the metadata of images to the images.
+ *
+ * The images are indexed by kind, by the ingress types of their components and by the names of their components.
+ * The index of an image is updated whenever the image changes by removing the postings of the previously indexed
+ * metadata and adding the postings of the current metadata.
+ */
+class ImageMetadataIndex {
+    private final Map<String, Metadata> indexedMetadata = new HashMap<>();
+    private final Map<String, Set<String>> imagesByKind = new HashMap<>();
+    private final Map<String, Set<String>> imagesByIngressType = new HashMap<>();
+    private final Map<String, Set<String>> imagesByComponent = new HashMap<>();
+
+    /**
+     * Update the postings of an image.
+     *
+     * @param imageFQN The fully qualified name of the image
+     * @param metadata The current metadata of the image or null if the image was removed
+     */
+    synchronized void update(String imageFQN, Metadata metadata) {
+        Metadata previousMetadata = metadata == null
+                ? indexedMetadata.remove(imageFQN)
+                : indexedMetadata.put(imageFQN, metadata);
+        if (previousMetadata != metadata) {    // Pooled metadata are the same instance if the content is equal
+            if (previousMetadata != null) {
+                forEachKey(previousMetadata, (postings, key) -> removePosting(postings, key, imageFQN));
+            }
+            if (metadata != null) {
+                forEachKey(metadata, (postings, key) -> postings.computeIfAbsent(key, (newKey) -> new HashSet<>())
+                        .add(imageFQN));
+            }
+        }
+    }
+
+    /**
+     * Get the images of a kind.
+     *
+     * @param kind The kind of the images (Cell or Composite)
+     * @return The fully qualified names of the images
+     */
+    synchronized Set<String> getImagesOfKind(String kind) {
+        return copyPostings(imagesByKind, kind);
+    }
+
+    /**
+     * Get the images with at least one component exposing an ingress type.
+     *
+     * @param ingressType The ingress type (for example HTTP)
+     * @return The fully qualified names of the images
+     */
+    synchronized Set<String> getImagesWithIngressType(String ingressType) {
+        return copyPostings(imagesByIngressType, ingressType);
+    }
+
+    /**
+     * Get the images containing a component.
+     *
+     * @param componentName The name of the component
+     * @return The fully qualified names of the images
+     */
+    synchronized Set<String> getImagesWithComponent(String componentName) {
+        return copyPostings(imagesByComponent, componentName);
+    }
+
+    /**
+     * Apply an action on all the keys of a metadata.
+     *
+     * @param metadata The metadata of an image
+     * @param action The action to be applied with the postings map of the key and the key
+     */
+    private void forEachKey(Metadata metadata, BiConsumer<Map<String, Set<String>>, String> action) {
+        if (metadata.getKind() != null) {
+            action.accept(imagesByKind, metadata.getKind());
+        }
+        for (Map.Entry<String, ComponentMetadata> componentEntry : metadata.getComponents().entrySet()) {
+            action.accept(imagesByComponent, componentEntry.getKey());
+            for (String ingressType : componentEntry.getValue().getIngressTypes()) {
+                if (ingressType != null) {
+                    action.accept(imagesByIngressType, ingressType);
+                }
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Set<String>> postings, String key, String imageFQN) {
+        Set<String> imageFQNs = postings.get(key);
+        if (imageFQNs != null) {
+            imageFQNs.remove(imageFQN);
+            if (imageFQNs.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> copyPostings(Map<String, Set<String>> postings, String key) {
+        Set<String> imageFQNs = postings.get(key);
+        return imageFQNs == null ? Collections.emptySet() : new HashSet<>(imageFQNs);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Off-heap storage of the raw reference and metadata JSON of Cellery Images.
+ *
+ * The contents are written as UTF-8 into direct buffer chunks allocated outside the Java heap and are addressed by
+ * handles of slots recording the chunk and the offset of each content. Equal contents are stored once, so consecutive
+ * versions of an image with the same references and metadata share a single copy.
+ *
+ * Slots are reference counted. The owners of handles register themselves to release the handles once they are
+ * garbage collected, so that a content is never released while a reader can still reach its handle. When the released
+ * contents take up more space than the live contents, the live contents are copied into new chunks and the previous
+ * chunks are left to be freed along with their direct buffers. The handles stay valid as only the slots are updated.
+ */
+class ImagePayloadArena {
+    static final long NO_HANDLE = -1;
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<Slot> slots = new ArrayList<>();
+    private final Deque<Integer> freeSlotIndices = new ArrayDeque<>();
+    private final Map<Long, Integer> slotIndicesByContentHash = new HashMap<>();
+    private final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<>();
+    private final Set<OwnerReference> ownerReferences = new HashSet<>();
+    private ByteBuffer currentChunk;
+    private int currentChunkIndex;
+    private long allocatedBytes;
+    private long liveBytes;
+    private long releasedBytes;
+
+    /**
+     * Store a content in the arena.
+     *
+     * The returned handle holds a reference to the content, which is released once the owner registered using
+     * {@link #releaseWhenCollected(Object, long...)} is garbage collected.
+     *
+     * @param content The content to be stored
+     * @return The handle of the stored content
+     */
+    synchronized long store(String content) {
+        releaseCollectedOwners();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        long contentHash = hash(bytes);
+        Integer existingSlotIndex = slotIndicesByContentHash.get(contentHash);
+        if (existingSlotIndex != null && content.equals(read(existingSlotIndex))) {
+            slots.get(existingSlotIndex).references++;
+            return existingSlotIndex;
+        }
+
+        Slot slot = new Slot(contentHash, bytes.length);
+        allocate(slot);
+        ByteBuffer chunk = chunks.get(slot.chunkIndex).duplicate();
+        chunk.position(slot.offset);
+        chunk.put(bytes);
+        liveBytes += bytes.length;
+
+        int slotIndex;
+        if (freeSlotIndices.isEmpty()) {
+            slotIndex = slots.size();
+            slots.add(slot);
+        } else {
+            slotIndex = freeSlotIndices.pop();
+            slots.set(slotIndex, slot);
+        }
+        if (existingSlotIndex == null) {
+            slotIndicesByContentHash.put(contentHash, slotIndex);
+        }
+        return slotIndex;
+    }
+
+    /**
+     * Add a reference to a stored content for another owner of the handle.
+     *
+     * @param handle The handle of the content
+     */
+    synchronized void retain(long handle) {
+        getSlot(handle).references++;
+    }
+
+    /**
+     * Release the references held by an owner of handles once the owner is garbage collected.
+     *
+     * @param owner The owner of the handles
+     * @param handles The handles of which the references are held by the owner
+     */
+    synchronized void releaseWhenCollected(Object owner, long... handles) {
+        ownerReferences.add(new OwnerReference(owner, collectedOwners, handles));
+    }
+
+    /**
+     * Read a content stored in the arena.
+     *
+     * @param handle The handle returned when the content was stored
+     * @return The stored content
+     */
+    synchronized String read(long handle) {
+        Slot slot = getSlot(handle);
+        ByteBuffer chunk = chunks.get(slot.chunkIndex).duplicate();
+        chunk.position(slot.offset);
+        byte[] bytes = new byte[slot.length];
+        chunk.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of bytes allocated outside the Java heap for the chunks.
+     *
+     * @return The allocated bytes
+     */
+    synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Release the references of the owners collected since the last call and compact the chunks if required.
+     */
+    private void releaseCollectedOwners() {
+        Reference<?> collectedOwner;
+        while ((collectedOwner = collectedOwners.poll()) != null) {
+            OwnerReference ownerReference = (OwnerReference) collectedOwner;
+            ownerReferences.remove(ownerReference);
+            for (long handle : ownerReference.handles) {
+                release(handle);
+            }
+        }
+        if (releasedBytes >= CHUNK_SIZE && releasedBytes > liveBytes) {
+            compact();
+        }
+    }
+
+    private void release(long handle) {
+        Slot slot = getSlot(handle);
+        slot.references--;
+        if (slot.references == 0) {
+            int slotIndex = (int) handle;
+            slots.set(slotIndex, null);
+            freeSlotIndices.push(slotIndex);
+            if (Integer.valueOf(slotIndex).equals(slotIndicesByContentHash.get(slot.contentHash))) {
+                slotIndicesByContentHash.remove(slot.contentHash);
+            }
+            liveBytes -= slot.length;
+            releasedBytes += slot.length;
+        }
+    }
+
+    /**
+     * Copy the live contents into new chunks, dropping the previous chunks.
+     */
+    private void compact() {
+        List<ByteBuffer> previousChunks = new ArrayList<>(chunks);
+        chunks.clear();
+        currentChunk = null;
+        allocatedBytes = 0;
+        for (Slot slot : slots) {
+            if (slot != null) {
+                ByteBuffer source = previousChunks.get(slot.chunkIndex).duplicate();
+                source.position(slot.offset);
+                source.limit(slot.offset + slot.length);
+                allocate(slot);
+                ByteBuffer target = chunks.get(slot.chunkIndex).duplicate();
+                target.position(slot.offset);
+                target.put(source);
+            }
+        }
+        releasedBytes = 0;
+    }
+
+    /**
+     * Allocate space for the content of a slot, updating the chunk and the offset of the slot.
+     *
+     * @param slot The slot of the content
+     */
+    private void allocate(Slot slot) {
+        if (slot.length > CHUNK_SIZE) {
+            // Oversized contents get a chunk of their own so that the space left in the current chunk is not wasted
+            ByteBuffer chunk = ByteBuffer.allocateDirect(slot.length);
+            slot.chunkIndex = chunks.size();
+            slot.offset = 0;
+            chunks.add(chunk);
+            allocatedBytes += chunk.capacity();
+        } else {
+            if (currentChunk == null || currentChunk.remaining() < slot.length) {
+                currentChunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                currentChunkIndex = chunks.size();
+                chunks.add(currentChunk);
+                allocatedBytes += CHUNK_SIZE;
+            }
+            slot.chunkIndex = currentChunkIndex;
+            slot.offset = currentChunk.position();
+            currentChunk.position(slot.offset + slot.length);
+        }
+    }
+
+    private Slot getSlot(long handle) {
+        Slot slot = handle >= 0 && handle < slots.size() ? slots.get((int) handle) : null;
+        if (slot == null) {
+            throw new IllegalStateException("Payload handle " + handle + " had been released");
+        }
+        return slot;
+    }
+
+    /**
+     * Calculate the hash of a content used for finding equal contents already stored in the arena.
+     *
+     * @param bytes The content
+     * @return The hash of the content
+     */
+    private static long hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by all Java platforms
+            throw new IllegalStateException("SHA-256 digest is not available", e);
+        }
+    }
+
+    /**
+     * Location and reference count of a stored content.
+     */
+    private static class Slot {
+        private final long contentHash;
+        private final int length;
+        private int chunkIndex;
+        private int offset;
+        private int references;
+
+        private Slot(long contentHash, int length) {
+            this.contentHash = contentHash;
+            this.length = length;
+            this.references = 1;
+        }
+    }
+
+    /**
+     * Reference enqueued when an owner of handles is garbage collected.
+     */
+    private static class OwnerReference extends PhantomReference<Object> {
+        private final long[] handles;
+
+        private OwnerReference(Object owner, ReferenceQueue<Object> queue, long[] handles) {
+            super(owner, queue);
+            this.handles = handles;
+        }
+    }
+}
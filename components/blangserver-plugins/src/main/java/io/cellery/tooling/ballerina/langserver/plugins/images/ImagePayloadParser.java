@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streaming parser for the reference and metadata JSON files of Cellery Images.
+ *
+ * Only the fields used by the plugin are read and all the other fields are skipped without being materialized.
+ */
+public class ImagePayloadParser {
+    private static final String METADATA_KIND_FIELD = "kind";
+    private static final String METADATA_COMPONENTS_FIELD = "components";
+    private static final String METADATA_ZERO_SCALING_REQUIRED_FIELD = "zeroScalingRequired";
+    private static final String METADATA_AUTO_SCALING_REQUIRED_FIELD = "autoScalingRequired";
+    private static final String COMPONENT_METADATA_INGRESS_TYPES_FIELD = "ingressTypes";
+
+    /**
+     * Parse the reference JSON of an image.
+     *
+     * @param referenceJson The content of the reference JSON
+     * @param interner The function used for getting the canonical instances of repeated strings
+     * @return The immutable reference keys
+     * @throws IOException If the reference JSON is malformed
+     */
+    public static Map<String, String> parseReferenceKeys(String referenceJson, UnaryOperator<String> interner)
+            throws IOException {
+        try (JsonReader jsonReader = new JsonReader(new StringReader(referenceJson))) {
+            if (jsonReader.peek() == JsonToken.NULL) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> referenceKeys = new LinkedHashMap<>();
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                referenceKeys.put(interner.apply(jsonReader.nextName()), nextNullableString(jsonReader));
+            }
+            jsonReader.endObject();
+            return Collections.unmodifiableMap(referenceKeys);
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected structure in reference JSON", e);
+        }
+    }
+
+    /**
+     * Parse the metadata JSON of an image.
+     *
+     * @param metadataJson The content of the metadata JSON
+     * @param interner The function used for getting the canonical instances of repeated strings
+     * @return The immutable metadata
+     * @throws IOException If the metadata JSON is malformed
+     */
+    public static Metadata parseMetadata(String metadataJson, UnaryOperator<String> interner) throws IOException {
+        try (JsonReader jsonReader = new JsonReader(new StringReader(metadataJson))) {
+            String kind = null;
+            Map<String, ComponentMetadata> components = Collections.emptyMap();
+            boolean zeroScalingRequired = false;
+            boolean autoScalingRequired = false;
+
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String fieldName = jsonReader.nextName();
+                if (jsonReader.peek() == JsonToken.NULL) {
+                    jsonReader.nextNull();
+                } else if (METADATA_KIND_FIELD.equals(fieldName)) {
+                    kind = interner.apply(jsonReader.nextString());
+                } else if (METADATA_COMPONENTS_FIELD.equals(fieldName)) {
+                    components = parseComponents(jsonReader, interner);
+                } else if (METADATA_ZERO_SCALING_REQUIRED_FIELD.equals(fieldName)) {
+                    zeroScalingRequired = jsonReader.nextBoolean();
+                } else if (METADATA_AUTO_SCALING_REQUIRED_FIELD.equals(fieldName)) {
+                    autoScalingRequired = jsonReader.nextBoolean();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            return new Metadata(kind, components, zeroScalingRequired, autoScalingRequired);
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected structure in metadata JSON", e);
+        }
+    }
+
+    /**
+     * Parse the components map of the metadata JSON.
+     *
+     * @param jsonReader The JSON reader positioned at the components map
+     * @param interner The function used for getting the canonical instances of repeated strings
+     * @return The immutable components map
+     * @throws IOException If the components map is malformed
+     */
+    private static Map<String, ComponentMetadata> parseComponents(JsonReader jsonReader,
+                                                                  UnaryOperator<String> interner) throws IOException {
+        Map<String, ComponentMetadata> components = new LinkedHashMap<>();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String componentName = interner.apply(jsonReader.nextName());
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            List<String> ingressTypes = Collections.emptyList();
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String fieldName = jsonReader.nextName();
+                if (COMPONENT_METADATA_INGRESS_TYPES_FIELD.equals(fieldName)
+                        && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    List<String> parsedIngressTypes = new ArrayList<>();
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        parsedIngressTypes.add(interner.apply(nextNullableString(jsonReader)));
+                    }
+                    jsonReader.endArray();
+                    ingressTypes = Collections.unmodifiableList(parsedIngressTypes);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            components.put(componentName, new ComponentMetadata(ingressTypes));
+        }
+        jsonReader.endObject();
+        return Collections.unmodifiableMap(components);
+    }
+
+    /**
+     * Read the next string value which may be null.
+     *
+     * @param jsonReader The JSON reader positioned at the value
+     * @return The string value or null
+     * @throws IOException If the value is not a string
+     */
+    private static String nextNullableString(JsonReader jsonReader) throws IOException {
+        String value;
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            value = null;
+        } else {
+            value = jsonReader.nextString();
+        }
+        return value;
+    }
+
+    private ImagePayloadParser() {  // Prevent initialization
+    }
+}
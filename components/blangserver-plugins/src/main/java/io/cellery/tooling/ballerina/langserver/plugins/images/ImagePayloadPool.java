@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Content addressed pool of the information extracted from Cellery Images.
+ *
+ * Consecutive versions of an image usually contain identical references and metadata. The pool keys the parsed
+ * information by the hash of the JSON it was parsed from, so that all the image versions with the same content share
+ * a single immutable instance. The instances are weakly held and are dropped from the pool once no image uses them.
+ */
+public class ImagePayloadPool {
+    private final ContentPool<Map<String, String>> referenceKeysPool = new ContentPool<>();
+    private final ContentPool<Metadata> metadataPool = new ContentPool<>();
+    private final Map<String, WeakReference<String>> internedStrings = new WeakHashMap<>();
+
+    /**
+     * Get the reference keys for a reference JSON.
+     *
+     * @param referenceJson The content of the reference JSON of an image
+     * @return The shared immutable reference keys
+     * @throws IOException If the reference JSON is malformed
+     */
+    public synchronized Map<String, String> getReferenceKeys(String referenceJson) throws IOException {
+        return referenceKeysPool.get(referenceJson,
+                (content) -> ImagePayloadParser.parseReferenceKeys(content, this::intern));
+    }
+
+    /**
+     * Get the metadata for a metadata JSON.
+     *
+     * @param metadataJson The content of the metadata JSON of an image
+     * @return The shared immutable metadata
+     * @throws IOException If the metadata JSON is malformed
+     */
+    public synchronized Metadata getMetadata(String metadataJson) throws IOException {
+        return metadataPool.get(metadataJson, (content) -> ImagePayloadParser.parseMetadata(content, this::intern));
+    }
+
+    /**
+     * Get the canonical instance of a string repeated across images.
+     *
+     * @param value The string value
+     * @return The canonical instance
+     */
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> internedReference = internedStrings.get(value);
+        String internedValue = internedReference == null ? null : internedReference.get();
+        if (internedValue == null) {
+            internedValue = value;
+            internedStrings.put(internedValue, new WeakReference<>(internedValue));
+        }
+        return internedValue;
+    }
+
+    /**
+     * Pool of weakly held values keyed by the hash of the content they were created from.
+     *
+     * @param <T> The type of the pooled values
+     */
+    private static class ContentPool<T> {
+        private final Map<String, PooledReference<T>> pooledValues = new HashMap<>();
+        private final ReferenceQueue<T> referenceQueue = new ReferenceQueue<>();
+
+        /**
+         * Get the pooled value for a content.
+         *
+         * @param content The content from which the value is created
+         * @param factory The factory used for creating the value if it is not already pooled
+         * @return The pooled value
+         * @throws IOException If creating the value failed
+         */
+        private T get(String content, PayloadFactory<T> factory) throws IOException {
+            expungeStaleValues();
+            String contentHash = hash(content);
+            PooledReference<T> pooledReference = pooledValues.get(contentHash);
+            T value = pooledReference == null ? null : pooledReference.get();
+            if (value == null) {
+                value = factory.create(content);
+                pooledValues.put(contentHash, new PooledReference<>(contentHash, value, referenceQueue));
+            }
+            return value;
+        }
+
+        /**
+         * Remove the entries of which the values are no longer used by any image.
+         */
+        private void expungeStaleValues() {
+            PooledReference<?> staleReference;
+            while ((staleReference = (PooledReference<?>) referenceQueue.poll()) != null) {
+                if (pooledValues.get(staleReference.contentHash) == staleReference) {
+                    pooledValues.remove(staleReference.contentHash);
+                }
+            }
+        }
+
+        /**
+         * Calculate the hash of a content.
+         *
+         * @param content The content to be hashed
+         * @return The hash of the content
+         */
+        private static String hash(String content) {
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                return Base64.getEncoder().encodeToString(sha256.digest(content.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is required to be supported by all Java platforms
+                throw new IllegalStateException("SHA-256 digest is not available", e);
+            }
+        }
+    }
+
+    /**
+     * Weak reference to a pooled value which remembers the hash of the content of the value.
+     *
+     * @param <T> The type of the pooled value
+     */
+    private static class PooledReference<T> extends WeakReference<T> {
+        private final String contentHash;
+
+        private PooledReference(String contentHash, T value, ReferenceQueue<T> referenceQueue) {
+            super(value, referenceQueue);
+            this.contentHash = contentHash;
+        }
+    }
+
+    /**
+     * Factory for creating a pooled value from its content.
+     *
+     * @param <T> The type of the pooled value
+     */
+    @FunctionalInterface
+    private interface PayloadFactory<T> {
+        T create(String content) throws IOException;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scanner discovering the image versions in the local repository without relying on file system notifications.
+ *
+ * The scanner remembers the modification time and the entries of the repository, organization and image directories.
+ * Directories of which the modification time had not changed are not listed again, and the versions of unchanged
+ * image directories are skipped as a whole, so that scanning an unchanged repository only reads the attributes of the
+ * organization and image directories. The organizations are scanned in parallel as fork/join tasks.
+ *
+ * The entries of a listed directory are compared with the entries remembered from its previous listing, so that removed
+ * organizations, images and versions are reported without checking the image files of the images in memory.
+ */
+class LocalRepoScanner {
+    // Directories modified this recently before a scan are listed again by the next scan, as a change made within the
+    // same tick of a coarse grained (e.g. NFS) modification time would otherwise be missed
+    private static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000;
+
+    private final File localRepo;
+    private final ForkJoinPool pool;
+    private final Map<String, DirectoryState> directoryStates = new ConcurrentHashMap<>();
+
+    LocalRepoScanner(File localRepo, ForkJoinPool pool) {
+        this.localRepo = localRepo;
+        this.pool = pool;
+    }
+
+    /**
+     * Scan the local repository for the versions in new or changed image directories and the removed directories.
+     *
+     * @param versionConsumer The consumer called with each image version found in a new or changed image directory
+     * @param removalConsumer The consumer called with each organization, image or version removed since the last scan,
+     *                        with a null image name and version if the entire organization or image was removed
+     */
+    void scan(ImageVersionConsumer versionConsumer, ImageVersionConsumer removalConsumer) {
+        long scanStartTime = System.currentTimeMillis();
+        Listing orgListing = list(localRepo, scanStartTime);
+        if (orgListing == null) {
+            return;
+        }
+        for (String removedOrgName : orgListing.removedEntries) {
+            removalConsumer.accept(removedOrgName, null, null);
+        }
+        List<ForkJoinTask<?>> orgScanTasks = new ArrayList<>(orgListing.entries.length);
+        for (String orgName : orgListing.entries) {
+            orgScanTasks.add(new OrgScanTask(orgName, scanStartTime, versionConsumer, removalConsumer));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(orgScanTasks);
+            }
+        });
+    }
+
+    /**
+     * List a directory unless its modification time matches the last listing.
+     *
+     * @param directory The directory to be listed
+     * @param scanStartTime The time at which the current scan started
+     * @return The listing of the directory or null if the path is not a directory
+     */
+    private Listing list(File directory, long scanStartTime) {
+        String path = directory.getPath();
+        long lastModified = directory.lastModified();
+        DirectoryState previousState = directoryStates.get(path);
+        if (previousState != null && previousState.isSettled && previousState.lastModified == lastModified) {
+            return new Listing(previousState.entries, Collections.emptySet(), false);
+        }
+
+        String[] entries = directory.list();
+        if (entries == null) {
+            forget(path);
+            return null;
+        }
+        Set<String> removedEntries = Collections.emptySet();
+        if (previousState != null) {
+            removedEntries = new HashSet<>(Arrays.asList(previousState.entries));
+            removedEntries.removeAll(Arrays.asList(entries));
+            for (String removedEntry : removedEntries) {
+                forget(new File(directory, removedEntry).getPath());
+            }
+        }
+        // The entries of recently modified directories are remembered for finding removed entries, but the directory
+        // is listed again by the next scan
+        directoryStates.put(path, new DirectoryState(lastModified, entries,
+                lastModified < scanStartTime - MODIFICATION_TIME_GRANULARITY_MILLIS));
+        return new Listing(entries, removedEntries, true);
+    }
+
+    /**
+     * Forget the state of a directory and all the directories remembered under it.
+     *
+     * @param path The path of the directory
+     */
+    private void forget(String path) {
+        DirectoryState state = directoryStates.remove(path);
+        if (state != null) {
+            for (String entry : state.entries) {
+                forget(path + File.separator + entry);
+            }
+        }
+    }
+
+    /**
+     * Fork/join task scanning the images of an organization.
+     */
+    private class OrgScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String orgName;
+        private final long scanStartTime;
+        private final ImageVersionConsumer versionConsumer;
+        private final ImageVersionConsumer removalConsumer;
+
+        private OrgScanTask(String orgName, long scanStartTime, ImageVersionConsumer versionConsumer,
+                            ImageVersionConsumer removalConsumer) {
+            this.orgName = orgName;
+            this.scanStartTime = scanStartTime;
+            this.versionConsumer = versionConsumer;
+            this.removalConsumer = removalConsumer;
+        }
+
+        @Override
+        protected void compute() {
+            File orgDirectory = new File(localRepo, orgName);
+            Listing imageListing = list(orgDirectory, scanStartTime);
+            if (imageListing == null) {
+                return;
+            }
+            for (String removedImageName : imageListing.removedEntries) {
+                removalConsumer.accept(orgName, removedImageName, null);
+            }
+            for (String imageName : imageListing.entries) {
+                File imageDirectory = new File(orgDirectory, imageName);
+                Listing versionListing = list(imageDirectory, scanStartTime);
+                if (versionListing != null && versionListing.changed) {
+                    for (String removedVersion : versionListing.removedEntries) {
+                        removalConsumer.accept(orgName, imageName, removedVersion);
+                    }
+                    for (String version : versionListing.entries) {
+                        if (new File(imageDirectory, version).isDirectory()) {
+                            versionConsumer.accept(orgName, imageName, version);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembered state of a listed directory.
+     */
+    private static class DirectoryState {
+        private final long lastModified;
+        private final String[] entries;
+        private final boolean isSettled;
+
+        private DirectoryState(long lastModified, String[] entries, boolean isSettled) {
+            this.lastModified = lastModified;
+            this.entries = entries;
+            this.isSettled = isSettled;
+        }
+    }
+
+    /**
+     * Entries of a directory, the entries removed since the last listing and whether the entries changed.
+     */
+    private static class Listing {
+        private final String[] entries;
+        private final Set<String> removedEntries;
+        private final boolean changed;
+
+        private Listing(String[] entries, Set<String> removedEntries, boolean changed) {
+            this.entries = entries;
+            this.removedEntries = removedEntries;
+            this.changed = changed;
+        }
+    }
+
+    /**
+     * Consumer of the image versions found or removed by a scan.
+     */
+    @FunctionalInterface
+    interface ImageVersionConsumer {
+        void accept(String orgName, String imageName, String version);
+    }
+}
@@ -22,42 +22,36 @@ import java.util.Map;
 
 /**
  * Metadata model.
+ *
+ * Instances are shared among all the image versions with the same metadata and therefore should not be modified.
  */
 public class Metadata {
-    private String kind;
-    private Map<String, ComponentMetadata> components;
-    private boolean zeroScalingRequired;
-    private boolean autoScalingRequired;
+    private final String kind;
+    private final Map<String, ComponentMetadata> components;
+    private final boolean zeroScalingRequired;
+    private final boolean autoScalingRequired;
 
-    public String getKind() {
-        return kind;
+    public Metadata(String kind, Map<String, ComponentMetadata> components, boolean zeroScalingRequired,
+                    boolean autoScalingRequired) {
+        this.kind = kind;
+        this.components = components;
+        this.zeroScalingRequired = zeroScalingRequired;
+        this.autoScalingRequired = autoScalingRequired;
     }
 
-    public void setKind(String kind) {
-        this.kind = kind;
+    public String getKind() {
+        return kind;
     }
 
     public Map<String, ComponentMetadata> getComponents() {
         return components;
     }
 
-    public void setComponents(Map<String, ComponentMetadata> components) {
-        this.components = components;
-    }
-
     public boolean isZeroScalingRequired() {
         return zeroScalingRequired;
     }
 
-    public void setZeroScalingRequired(boolean zeroScalingRequired) {
-        this.zeroScalingRequired = zeroScalingRequired;
-    }
-
     public boolean isAutoScalingRequired() {
         return autoScalingRequired;
     }
-
-    public void setAutoScalingRequired(boolean autoScalingRequired) {
-        this.autoScalingRequired = autoScalingRequired;
-    }
 }
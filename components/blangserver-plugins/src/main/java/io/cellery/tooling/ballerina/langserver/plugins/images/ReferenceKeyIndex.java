@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted index of the reference keys of an image for looking up keys by prefix.
+ */
+public class ReferenceKeyIndex {
+    private final String[] sortedKeys;
+
+    public ReferenceKeyIndex(Collection<String> referenceKeys) {
+        this.sortedKeys = referenceKeys.toArray(new String[0]);
+        Arrays.sort(this.sortedKeys);
+    }
+
+    /**
+     * Get the reference keys starting with a prefix.
+     *
+     * @param prefix The prefix typed by the user
+     * @return The matching keys in sorted order
+     */
+    public List<String> getKeysWithPrefix(String prefix) {
+        int fromIndex = findInsertionPoint(prefix);
+        int toIndex = fromIndex;
+        while (toIndex < sortedKeys.length && sortedKeys[toIndex].startsWith(prefix)) {
+            toIndex++;
+        }
+        return fromIndex == toIndex
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(sortedKeys).subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Find the index of the first key which is not less than a value.
+     *
+     * @param value The value to be searched
+     * @return The index of the first key not less than the value
+     */
+    private int findInsertionPoint(String value) {
+        int index = Arrays.binarySearch(sortedKeys, value);
+        return index < 0 ? -index - 1 : index;
+    }
+}
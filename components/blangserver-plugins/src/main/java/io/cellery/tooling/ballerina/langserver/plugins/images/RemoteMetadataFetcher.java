@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Fetcher for reading individual entries of Cellery Image zips in a remote registry.
+ *
+ * Only the end of the zip, its central directory and the requested entries are downloaded using HTTP range requests,
+ * instead of pulling the entire image.
+ */
+public class RemoteMetadataFetcher {
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    // The end of central directory record followed by the maximum zip comment length
+    private static final int TAIL_SIZE = END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF;
+    // Extra bytes read after the entries expecting the local extra fields to be slightly longer than the central ones
+    private static final int LOCAL_EXTRA_FIELD_ALLOWANCE = 256;
+    private static final int COMPRESSION_METHOD_STORED = 0;
+    private static final int COMPRESSION_METHOD_DEFLATED = 8;
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final String imageUrlTemplate;
+
+    /**
+     * Create a remote metadata fetcher.
+     *
+     * @param imageUrlTemplate The URL of the image zips formatted with the org, name and version of the image
+     */
+    public RemoteMetadataFetcher(String imageUrlTemplate) {
+        this.imageUrlTemplate = imageUrlTemplate;
+    }
+
+    /**
+     * Fetch entries of an image zip from the remote registry.
+     *
+     * @param orgName The name of the organization the image belongs to
+     * @param imageName The name of the image
+     * @param version The version of the image
+     * @param entryNames The names of the zip entries to be fetched
+     * @return The content of the fetched entries with the entry names as keys
+     * @throws IOException If the registry does not support range requests, or an entry is missing
+     */
+    public Map<String, String> fetch(String orgName, String imageName, String version, Collection<String> entryNames)
+            throws IOException {
+        URL imageUrl = new URL(String.format(imageUrlTemplate, orgName, imageName, version));
+
+        // Locating the central directory using the end of central directory record
+        RangeResponse tail = readSuffixRange(imageUrl, TAIL_SIZE);
+        ByteBuffer tailBuffer = ByteBuffer.wrap(tail.content).order(ByteOrder.LITTLE_ENDIAN);
+        int endOfCentralDirectoryOffset = -1;
+        for (int i = tail.content.length - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tailBuffer.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                endOfCentralDirectoryOffset = i;
+                break;
+            }
+        }
+        if (endOfCentralDirectoryOffset < 0) {
+            throw new IOException("End of central directory not found in " + imageUrl);
+        }
+        long centralDirectorySize = Integer.toUnsignedLong(tailBuffer.getInt(endOfCentralDirectoryOffset + 12));
+        long centralDirectoryOffset = Integer.toUnsignedLong(tailBuffer.getInt(endOfCentralDirectoryOffset + 16));
+        if (centralDirectoryOffset == 0xFFFFFFFFL || centralDirectorySize == 0xFFFFFFFFL) {
+            throw new IOException("Zip64 images are not supported: " + imageUrl);
+        }
+        if (centralDirectoryOffset + centralDirectorySize > tail.startOffset + endOfCentralDirectoryOffset) {
+            throw new IOException("Truncated central directory in " + imageUrl);
+        }
+
+        ByteBuffer centralDirectory;
+        if (centralDirectoryOffset >= tail.startOffset) {
+            centralDirectory = ByteBuffer.wrap(tail.content, (int) (centralDirectoryOffset - tail.startOffset),
+                    (int) centralDirectorySize).slice().order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            centralDirectory = ByteBuffer.wrap(readRange(imageUrl, centralDirectoryOffset, centralDirectorySize))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // Reading the requested entries
+        Map<String, String> entries = new HashMap<>();
+        while (centralDirectory.remaining() >= CENTRAL_DIRECTORY_HEADER_SIZE
+                && entries.size() < entryNames.size()) {
+            int headerOffset = centralDirectory.position();
+            if (centralDirectory.getInt(headerOffset) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                throw new IOException("Malformed central directory in " + imageUrl);
+            }
+            int compressionMethod = Short.toUnsignedInt(centralDirectory.getShort(headerOffset + 10));
+            long compressedSize = Integer.toUnsignedLong(centralDirectory.getInt(headerOffset + 20));
+            int nameLength = Short.toUnsignedInt(centralDirectory.getShort(headerOffset + 28));
+            int extraFieldLength = Short.toUnsignedInt(centralDirectory.getShort(headerOffset + 30));
+            int commentLength = Short.toUnsignedInt(centralDirectory.getShort(headerOffset + 32));
+            long localHeaderOffset = Integer.toUnsignedLong(centralDirectory.getInt(headerOffset + 42));
+            if (CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraFieldLength + commentLength
+                    > centralDirectory.remaining()) {
+                throw new IOException("Truncated central directory in " + imageUrl);
+            }
+            byte[] nameBytes = new byte[nameLength];
+            centralDirectory.position(headerOffset + CENTRAL_DIRECTORY_HEADER_SIZE);
+            centralDirectory.get(nameBytes);
+            centralDirectory.position(headerOffset + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraFieldLength
+                    + commentLength);
+
+            String entryName = new String(nameBytes, StandardCharsets.UTF_8);
+            if (entryNames.contains(entryName)) {
+                byte[] compressedContent = readEntry(imageUrl, localHeaderOffset, nameLength + extraFieldLength,
+                        compressedSize);
+                entries.put(entryName, new String(decompress(compressedContent, compressionMethod),
+                        StandardCharsets.UTF_8));
+            }
+        }
+        if (entries.size() < entryNames.size()) {
+            throw new IOException("Entries " + entryNames + " not found in " + imageUrl);
+        }
+        return entries;
+    }
+
+    /**
+     * Read the compressed content of a zip entry.
+     *
+     * @param imageUrl The URL of the image zip
+     * @param localHeaderOffset The offset of the local file header of the entry
+     * @param expectedVariableLength The expected length of the name and the extra field in the local file header
+     * @param compressedSize The compressed size of the entry
+     * @return The compressed content
+     * @throws IOException If reading the entry failed
+     */
+    private byte[] readEntry(URL imageUrl, long localHeaderOffset, int expectedVariableLength, long compressedSize)
+            throws IOException {
+        byte[] content = readRange(imageUrl, localHeaderOffset, LOCAL_FILE_HEADER_SIZE + expectedVariableLength
+                + compressedSize + LOCAL_EXTRA_FIELD_ALLOWANCE);
+        ByteBuffer buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        if (content.length < LOCAL_FILE_HEADER_SIZE || buffer.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new IOException("Malformed local file header in " + imageUrl);
+        }
+        int dataOffset = LOCAL_FILE_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(26))
+                + Short.toUnsignedInt(buffer.getShort(28));
+        if (dataOffset + compressedSize > content.length) {
+            // The local extra field is longer than allowed for
+            return readRange(imageUrl, localHeaderOffset + dataOffset, compressedSize);
+        }
+        byte[] compressedContent = new byte[(int) compressedSize];
+        System.arraycopy(content, dataOffset, compressedContent, 0, compressedContent.length);
+        return compressedContent;
+    }
+
+    /**
+     * Decompress the content of a zip entry.
+     *
+     * @param compressedContent The compressed content
+     * @param compressionMethod The compression method of the entry
+     * @return The decompressed content
+     * @throws IOException If the compression method is not supported or the content is corrupted
+     */
+    private static byte[] decompress(byte[] compressedContent, int compressionMethod) throws IOException {
+        if (compressionMethod == COMPRESSION_METHOD_STORED) {
+            return compressedContent;
+        } else if (compressionMethod == COMPRESSION_METHOD_DEFLATED) {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(compressedContent);
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressedContent.length * 4);
+                byte[] buffer = new byte[8192];
+                while (!inflater.finished()) {
+                    int inflatedLength = inflater.inflate(buffer);
+                    if (inflatedLength == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated zip entry");
+                    }
+                    outputStream.write(buffer, 0, inflatedLength);
+                }
+                return outputStream.toByteArray();
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted zip entry", e);
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new IOException("Unsupported zip compression method " + compressionMethod);
+        }
+    }
+
+    /**
+     * Read a range of bytes of a remote file.
+     *
+     * @param url The URL of the remote file
+     * @param offset The offset of the first byte
+     * @param length The maximum number of bytes to be read
+     * @return The bytes read
+     * @throws IOException If the server does not support range requests or the request failed
+     */
+    private byte[] readRange(URL url, long offset, long length) throws IOException {
+        return read(url, "bytes=" + offset + "-" + (offset + length - 1)).content;
+    }
+
+    /**
+     * Read the last bytes of a remote file.
+     *
+     * @param url The URL of the remote file
+     * @param length The maximum number of bytes to be read
+     * @return The bytes read with the offset of the first byte
+     * @throws IOException If the server does not support range requests or the request failed
+     */
+    private RangeResponse readSuffixRange(URL url, int length) throws IOException {
+        return read(url, "bytes=-" + length);
+    }
+
+    private RangeResponse read(URL url, String range) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestProperty("Range", range);
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                // Not reading the body as it might be the entire image
+                throw new IOException("Range request to " + url + " failed with status " + responseCode);
+            }
+            // Content-Range: bytes <first>-<last>/<total>
+            String contentRange = connection.getHeaderField("Content-Range");
+            if (contentRange == null || !contentRange.startsWith("bytes ") || contentRange.indexOf('-') < 0) {
+                throw new IOException("Unexpected Content-Range " + contentRange + " from " + url);
+            }
+            long startOffset = Long.parseLong(contentRange.substring(6, contentRange.indexOf('-')).trim());
+            try (InputStream inputStream = connection.getInputStream()) {
+                return new RangeResponse(startOffset, IOUtils.toByteArray(inputStream));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected Content-Range from " + url, e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Bytes read from a range of a remote file.
+     */
+    private static class RangeResponse {
+        private final long startOffset;
+        private final byte[] content;
+
+        private RangeResponse(long startOffset, byte[] content) {
+            this.startOffset = startOffset;
+            this.content = content;
+        }
+    }
+}
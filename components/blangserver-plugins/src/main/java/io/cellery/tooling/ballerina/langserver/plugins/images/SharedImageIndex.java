@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Index of extracted Cellery Image information shared among all the language server processes of a user.
+ *
+ * The index is an append only log of entries which holds the fingerprint and the raw reference and metadata JSON of
+ * each image in the local repository. A process which extracted information from an image zip appends it to the index
+ * while holding an exclusive lock on the index lock file, and the other processes map the index read-only and pick up
+ * the extracted information instead of reading and hashing the image zips again.
+ *
+ * Only the offsets of the latest entry of each image are kept in memory and an entry is decoded from the mapped index
+ * whenever it is requested. A refresh only scans the entries appended since the previous refresh. The log is
+ * compacted into a new index file with a new epoch once most of it is taken by replaced or removed entries.
+ */
+public class SharedImageIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SharedImageIndex.class);
+
+    private static final int MAGIC_NUMBER = 0x43454C49;
+    private static final int FORMAT_VERSION = 2;
+    // Magic number, format version, epoch and committed length
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int COMMITTED_LENGTH_POSITION = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final Path indexFile;
+    private final Path lockFile;
+    private final Executor executor;
+
+    private long currentEpoch;
+    private long scannedLength;
+    private long liveEntriesLength;
+    private MappedByteBuffer mappedIndex;
+    // The offset and the length of the latest entry of each image packed into a single long
+    private final Map<String, Long> entryLocations;
+    private final Map<String, Entry> pendingUpdates;
+    private final Set<String> pendingRemovals;
+    private boolean flushScheduled;
+
+    SharedImageIndex(File indexFile, Executor executor) {
+        this.indexFile = indexFile.toPath();
+        this.lockFile = new File(indexFile.getAbsolutePath() + ".lock").toPath();
+        this.executor = executor;
+        this.currentEpoch = 0;
+        this.scannedLength = HEADER_SIZE;
+        this.liveEntriesLength = 0;
+        this.mappedIndex = null;
+        this.entryLocations = new HashMap<>();
+        this.pendingUpdates = new HashMap<>();
+        this.pendingRemovals = new HashSet<>();
+        this.flushScheduled = false;
+    }
+
+    /**
+     * Get the index entry of an image.
+     *
+     * The entries are only as recent as the last call to {@link #refresh()}. The entry is decoded from the mapped
+     * index on each call.
+     *
+     * @param imageFQN The fully qualified name of the image
+     * @return The index entry or null if the image is not in the index
+     */
+    public synchronized Entry getEntry(String imageFQN) {
+        Long entryLocation = entryLocations.get(imageFQN);
+        if (entryLocation == null) {
+            return null;
+        }
+        ByteBuffer buffer = mappedIndex.duplicate();
+        buffer.position(getOffset(entryLocation) + Integer.BYTES);
+        try {
+            return Entry.readFrom(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Ignoring corrupted entry of " + imageFQN + " in the Cellery Image index " + indexFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Pick up the changes done to the index by other processes.
+     *
+     * Only the header of the index is read if no other process had updated the index since the last refresh, and
+     * only the entries appended since the last refresh are scanned otherwise. This reads the index file and therefore
+     * should not be called while serving a request.
+     */
+    public synchronized void refresh() {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                return;
+            }
+            long epoch = header.getLong();
+            long committedLength = header.getLong();
+            if (committedLength < HEADER_SIZE || committedLength > channel.size()
+                    || committedLength > Integer.MAX_VALUE) {
+                logger.warn("Ignoring corrupted Cellery Image index " + indexFile);
+                return;
+            }
+            boolean isNewEpoch = epoch != currentEpoch || mappedIndex == null;
+            if (isNewEpoch) {
+                entryLocations.clear();
+                currentEpoch = epoch;
+                scannedLength = HEADER_SIZE;
+                liveEntriesLength = 0;
+            }
+            if (isNewEpoch || committedLength > scannedLength) {
+                mappedIndex = channel.map(FileChannel.MapMode.READ_ONLY, 0, committedLength);
+                scanEntries((int) scannedLength, (int) committedLength);
+                scannedLength = committedLength;
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Failed to read the Cellery Image index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Record the locations of the entries in a range of the mapped index.
+     *
+     * @param start The offset of the first entry to be scanned
+     * @param end The committed length of the index
+     */
+    private void scanEntries(int start, int end) {
+        int offset = start;
+        while (offset < end) {
+            int entryLength = Integer.BYTES + mappedIndex.getInt(offset);
+            ByteBuffer buffer = mappedIndex.duplicate();
+            buffer.position(offset + Integer.BYTES);
+            String imageFQN = new String(Entry.readBytes(buffer), StandardCharsets.UTF_8);
+            Long previousLocation;
+            if (buffer.getLong() == Entry.REMOVED_IMAGE_FILE_SIZE) {
+                previousLocation = entryLocations.remove(imageFQN);
+            } else {
+                previousLocation = entryLocations.put(imageFQN, toLocation(offset, entryLength));
+                liveEntriesLength += entryLength;
+            }
+            if (previousLocation != null) {
+                liveEntriesLength -= getLength(previousLocation);
+            }
+            offset += entryLength;
+        }
+    }
+
+    /**
+     * Add or replace the entry of an image in the shared index.
+     *
+     * The change is written to the index asynchronously together with the other pending changes.
+     *
+     * @param entry The entry to be added
+     */
+    public synchronized void update(Entry entry) {
+        pendingRemovals.remove(entry.getImageFQN());
+        pendingUpdates.put(entry.getImageFQN(), entry);
+        scheduleFlush();
+    }
+
+    /**
+     * Remove the entry of an image from the shared index.
+     *
+     * The change is written to the index asynchronously together with the other pending changes.
+     *
+     * @param imageFQN The fully qualified name of the image
+     */
+    public synchronized void remove(String imageFQN) {
+        pendingUpdates.remove(imageFQN);
+        pendingRemovals.add(imageFQN);
+        scheduleFlush();
+    }
+
+    /**
+     * Schedule writing the pending changes to the index file if a write is not already scheduled.
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Append the pending changes to the index file and compact the index if required.
+     *
+     * Only one flush runs at a time, as the flag scheduling the flush is only cleared once the changes are written. If
+     * writing fails, the changes are put back to be written together with the next change, unless they were replaced by
+     * newer changes in the meantime.
+     */
+    private void flush() {
+        Map<String, Entry> flushedUpdates;
+        Set<String> flushedRemovals;
+        synchronized (this) {
+            flushedUpdates = new HashMap<>(pendingUpdates);
+            flushedRemovals = new HashSet<>(pendingRemovals);
+            pendingUpdates.clear();
+            pendingRemovals.clear();
+        }
+        List<Entry> appendedEntries = new ArrayList<>(flushedUpdates.values());
+        for (String removedImageFQN : flushedRemovals) {
+            appendedEntries.add(Entry.createRemoval(removedImageFQN));
+        }
+        boolean isFlushed = false;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    appendEntries(appendedEntries);
+                    isFlushed = true;
+                    refresh();
+                    compactIfRequired();
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to update the Cellery Image index " + indexFile, e);
+        } finally {
+            synchronized (this) {
+                if (!isFlushed) {
+                    for (Map.Entry<String, Entry> flushedUpdate : flushedUpdates.entrySet()) {
+                        if (!pendingRemovals.contains(flushedUpdate.getKey())) {
+                            pendingUpdates.putIfAbsent(flushedUpdate.getKey(), flushedUpdate.getValue());
+                        }
+                    }
+                    for (String flushedRemoval : flushedRemovals) {
+                        if (!pendingUpdates.containsKey(flushedRemoval)) {
+                            pendingRemovals.add(flushedRemoval);
+                        }
+                    }
+                }
+                flushScheduled = false;
+                if (isFlushed && (!pendingUpdates.isEmpty() || !pendingRemovals.isEmpty())) {
+                    // Changes made while writing are written by the next flush
+                    scheduleFlush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Append entries after the committed length of the index and commit them by updating the header.
+     *
+     * A new index is started if the current index file is missing or incompatible. Any bytes left after the committed
+     * length by a process which failed while appending are overwritten.
+     *
+     * @param appendedEntries The entries to be appended
+     * @throws IOException If writing the index failed
+     */
+    private void appendEntries(List<Entry> appendedEntries) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = readHeader(channel);
+            long committedLength;
+            if (header == null) {
+                channel.truncate(0);
+                committedLength = HEADER_SIZE;
+                writeFully(channel, createHeader(ThreadLocalRandom.current().nextLong(), committedLength), 0);
+            } else {
+                header.getLong();
+                committedLength = header.getLong();
+            }
+            int appendedLength = 0;
+            for (Entry entry : appendedEntries) {
+                appendedLength += Integer.BYTES + entry.getSerializedSize();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(appendedLength);
+            for (Entry entry : appendedEntries) {
+                buffer.putInt(entry.getSerializedSize());
+                entry.writeTo(buffer);
+            }
+            buffer.flip();
+            writeFully(channel, buffer, committedLength);
+            channel.force(false);
+            ByteBuffer newCommittedLength = ByteBuffer.allocate(Long.BYTES);
+            newCommittedLength.putLong(committedLength + appendedLength);
+            newCommittedLength.flip();
+            writeFully(channel, newCommittedLength, COMMITTED_LENGTH_POSITION);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replace the index with a new index holding only the latest entries if most of the index is taken by replaced or
+     * removed entries.
+     *
+     * The new index is written to a temporary file and atomically moved in place of the current index, so that the
+     * processes which had mapped the current index can keep on reading it until they refresh.
+     *
+     * @throws IOException If writing the index failed
+     */
+    private void compactIfRequired() throws IOException {
+        ByteBuffer compactedIndex;
+        synchronized (this) {
+            if (scannedLength < COMPACTION_THRESHOLD_BYTES || liveEntriesLength * 2 > scannedLength - HEADER_SIZE) {
+                return;
+            }
+            compactedIndex = ByteBuffer.allocate((int) (HEADER_SIZE + liveEntriesLength));
+            compactedIndex.put(createHeader(currentEpoch + 1, HEADER_SIZE + liveEntriesLength));
+            for (long entryLocation : entryLocations.values()) {
+                ByteBuffer entry = mappedIndex.duplicate();
+                entry.position(getOffset(entryLocation));
+                entry.limit(getOffset(entryLocation) + getLength(entryLocation));
+                compactedIndex.put(entry);
+            }
+            compactedIndex.flip();
+        }
+        Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, compactedIndex, 0);
+            channel.force(false);
+        }
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        refresh();
+    }
+
+    /**
+     * Read the header of the index and validate the format.
+     *
+     * @param channel The channel of the index file
+     * @return The header positioned at the epoch or null if the index is empty or incompatible
+     * @throws IOException If reading the index failed
+     */
+    private ByteBuffer readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC_NUMBER || header.getInt() != FORMAT_VERSION) {
+            logger.warn("Ignoring incompatible Cellery Image index " + indexFile);
+            return null;
+        }
+        return header;
+    }
+
+    private static ByteBuffer createHeader(long epoch, long committedLength) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC_NUMBER);
+        header.putInt(FORMAT_VERSION);
+        header.putLong(epoch);
+        header.putLong(committedLength);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long currentPosition = position;
+        while (buffer.hasRemaining()) {
+            currentPosition += channel.write(buffer, currentPosition);
+        }
+    }
+
+    private static long toLocation(int offset, int length) {
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int getOffset(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int getLength(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Information extracted from a single Cellery Image.
+     *
+     * Entries fetched from the remote registry without the image being in the local repository have a negative image
+     * file size.
+     */
+    public static class Entry {
+        public static final long REMOTE_IMAGE_FILE_SIZE = -1;
+        private static final long REMOVED_IMAGE_FILE_SIZE = -2;
+
+        private final String imageFQN;
+        private final long imageFileSize;
+        private final long imageFileLastModified;
+        private final byte[] digest;
+        private final String referenceJson;
+        private final String metadataJson;
+
+        public Entry(String imageFQN, long imageFileSize, long imageFileLastModified, byte[] digest,
+                     String referenceJson, String metadataJson) {
+            this.imageFQN = imageFQN;
+            this.imageFileSize = imageFileSize;
+            this.imageFileLastModified = imageFileLastModified;
+            this.digest = digest;
+            this.referenceJson = referenceJson;
+            this.metadataJson = metadataJson;
+        }
+
+        /**
+         * Create an entry which marks an image as removed from the index.
+         *
+         * @param imageFQN The fully qualified name of the removed image
+         * @return The removal entry
+         */
+        private static Entry createRemoval(String imageFQN) {
+            return new Entry(imageFQN, REMOVED_IMAGE_FILE_SIZE, 0, new byte[0], "", "");
+        }
+
+        public String getImageFQN() {
+            return imageFQN;
+        }
+
+        public long getImageFileSize() {
+            return imageFileSize;
+        }
+
+        public long getImageFileLastModified() {
+            return imageFileLastModified;
+        }
+
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        public String getReferenceJson() {
+            return referenceJson;
+        }
+
+        public String getMetadataJson() {
+            return metadataJson;
+        }
+        /**
+         * Check whether this entry was fetched from the remote registry instead of a local image file.
+         *
+         * @return True if the entry was fetched from the remote registry
+         */
+        public boolean isRemote() {
+            return imageFileSize == REMOTE_IMAGE_FILE_SIZE;
+        }
+
+        /**
+         * Check whether this entry was extracted from the current version of an image file.
+         *
+         * @param imageFile The image file
+         * @return True if the size and the last modified time of the image file matches the entry
+         */
+        public boolean matches(File imageFile) {
+            return imageFile.length() == imageFileSize && imageFile.lastModified() == imageFileLastModified;
+        }
+
+        private int getSerializedSize() {
+            return Integer.BYTES + imageFQN.getBytes(StandardCharsets.UTF_8).length
+                    + Long.BYTES + Long.BYTES
+                    + Integer.BYTES + digest.length
+                    + Integer.BYTES + referenceJson.getBytes(StandardCharsets.UTF_8).length
+                    + Integer.BYTES + metadataJson.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            writeBytes(buffer, imageFQN.getBytes(StandardCharsets.UTF_8));
+            buffer.putLong(imageFileSize);
+            buffer.putLong(imageFileLastModified);
+            writeBytes(buffer, digest);
+            writeBytes(buffer, referenceJson.getBytes(StandardCharsets.UTF_8));
+            writeBytes(buffer, metadataJson.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static Entry readFrom(ByteBuffer buffer) {
+            String imageFQN = new String(readBytes(buffer), StandardCharsets.UTF_8);
+            long imageFileSize = buffer.getLong();
+            long imageFileLastModified = buffer.getLong();
+            byte[] digest = readBytes(buffer);
+            String referenceJson = new String(readBytes(buffer), StandardCharsets.UTF_8);
+            String metadataJson = new String(readBytes(buffer), StandardCharsets.UTF_8);
+            return new Entry(imageFQN, imageFileSize, imageFileLastModified, digest, referenceJson, metadataJson);
+        }
+
+        private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private static byte[] readBytes(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid field length " + length);
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
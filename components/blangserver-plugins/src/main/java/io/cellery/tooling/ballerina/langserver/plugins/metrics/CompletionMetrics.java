@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.metrics;
+
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Latency and allocation metrics of the completion requests served by the Cellery completion providers.
+ *
+ * Recording is disabled by default and can be enabled using the cellery.ls.metrics.enabled system property. The
+ * percentiles are calculated over the most recent requests of each provider and are logged periodically. Requests
+ * allocating more than the budget set using the cellery.ls.metrics.allocation.budget system property are reported
+ * as they happen, so that allocation regressions in the completion path are noticed.
+ *
+ * The allocation of a request covers the thread serving the request and the tasks run on its behalf through
+ * {@link Sample#attribute(Supplier)}, such as the images loaded on the image executor for the request. Work the request
+ * did not start (such as loads started earlier by background scans or other requests which the request joins) and
+ * work which completes after the request was served are not counted.
+ */
+public class CompletionMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(CompletionMetrics.class);
+    private static final boolean enabled = Boolean.getBoolean(Constants.SystemProperties.METRICS_ENABLED);
+    private static final int reportInterval = getReportInterval();
+    private static final long allocationBudget = Long.getLong(Constants.SystemProperties.METRICS_ALLOCATION_BUDGET,
+            0);
+    private static final int SAMPLES_WINDOW_SIZE = 1024;
+    private static final Sample NO_OP_SAMPLE = new Sample(null, 0, 0);
+    private static final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Sample> currentSample = new ThreadLocal<>();
+
+    /**
+     * Start recording a completion request.
+     *
+     * @param provider The name of the completion provider serving the request
+     * @return The sample which should be stopped when the request is served
+     */
+    public static Sample start(String provider) {
+        Sample sample;
+        if (enabled) {
+            sample = new Sample(recorders.computeIfAbsent(provider, Recorder::new), System.nanoTime(),
+                    getCurrentThreadAllocatedBytes());
+            currentSample.set(sample);
+        } else {
+            sample = NO_OP_SAMPLE;
+        }
+        return sample;
+    }
+
+    /**
+     * Get the sample of the completion request being served by the current thread.
+     *
+     * @return The sample of the request or a sample which does not record anything if no request is being recorded
+     */
+    public static Sample getCurrentSample() {
+        Sample sample = enabled ? currentSample.get() : null;
+        return sample == null ? NO_OP_SAMPLE : sample;
+    }
+
+    /**
+     * Get the summaries of the recorded completion requests.
+     *
+     * @return The summaries of the recorded requests with the provider names as keys
+     */
+    public static Map<String, Summary> getSummaries() {
+        Map<String, Summary> summaries = new HashMap<>();
+        for (Map.Entry<String, Recorder> recorderEntry : recorders.entrySet()) {
+            summaries.put(recorderEntry.getKey(), recorderEntry.getValue().summarize());
+        }
+        return summaries;
+    }
+
+    /**
+     * Get the number of recorded requests after which the metrics summary is logged.
+     *
+     * @return The report interval or 0 if the summary should never be logged
+     */
+    private static int getReportInterval() {
+        int interval = Integer.getInteger(Constants.SystemProperties.METRICS_REPORT_INTERVAL, 100);
+        if (interval < 0) {
+            logger.warn("Ignoring the negative Cellery completion metrics report interval " + interval);
+            interval = 0;
+        }
+        return interval;
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread.
+     *
+     * @return The allocated bytes or -1 if allocation measurement is not supported by the JVM
+     */
+    private static long getCurrentThreadAllocatedBytes() {
+        long allocatedBytes = -1;
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported()
+                    && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                allocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * A single completion request being recorded.
+     */
+    public static class Sample {
+        private final Recorder recorder;
+        private final long startTime;
+        private final long startAllocatedBytes;
+        private final long threadId;
+        private final Sample previousSample;
+        private final AtomicLong attributedAllocatedBytes;
+
+        private Sample(Recorder recorder, long startTime, long startAllocatedBytes) {
+            this.recorder = recorder;
+            this.startTime = startTime;
+            this.startAllocatedBytes = startAllocatedBytes;
+            this.threadId = Thread.currentThread().getId();
+            this.previousSample = recorder == null ? null : currentSample.get();
+            this.attributedAllocatedBytes = new AtomicLong();
+        }
+
+        /**
+         * Run a task on behalf of the request and add the bytes allocated by the task to the request.
+         *
+         * This is meant for tasks which the request hands over to other threads and waits for.
+         *
+         * @param task The task to be run
+         * @param <T> The type of the result of the task
+         * @return The result of the task
+         */
+        public <T> T attribute(Supplier<T> task) {
+            if (recorder == null || startAllocatedBytes < 0 || Thread.currentThread().getId() == threadId) {
+                // Allocation on the thread serving the request is already counted
+                return task.get();
+            }
+            long taskStartAllocatedBytes = getCurrentThreadAllocatedBytes();
+            try {
+                return task.get();
+            } finally {
+                attributedAllocatedBytes.addAndGet(getCurrentThreadAllocatedBytes() - taskStartAllocatedBytes);
+            }
+        }
+
+        /**
+         * Stop recording the request.
+         *
+         * This should be called from the thread which started the sample.
+         */
+        public void stop() {
+            if (recorder != null) {
+                long latency = System.nanoTime() - startTime;
+                long allocatedBytes = startAllocatedBytes < 0
+                        ? -1
+                        : getCurrentThreadAllocatedBytes() - startAllocatedBytes + attributedAllocatedBytes.get();
+                if (currentSample.get() == this) {
+                    // Restoring the request being served before this one was started by a nested provider
+                    if (previousSample == null) {
+                        currentSample.remove();
+                    } else {
+                        currentSample.set(previousSample);
+                    }
+                }
+                boolean isOverBudget = allocationBudget > 0 && allocatedBytes > allocationBudget;
+                if (isOverBudget) {
+                    logger.warn("Cellery completion request of " + recorder.provider + " allocated "
+                            + allocatedBytes + " bytes exceeding the budget of " + allocationBudget + " bytes");
+                }
+                recorder.record(latency, allocatedBytes, isOverBudget);
+            }
+        }
+    }
+
+    /**
+     * Summary of the recent completion requests served by a provider.
+     */
+    public static class Summary {
+        private final long requestsCount;
+        private final long overBudgetRequestsCount;
+        private final long[] latencyPercentiles;
+        private final long[] allocationPercentiles;
+
+        private Summary(long requestsCount, long overBudgetRequestsCount, long[] latencyPercentiles,
+                        long[] allocationPercentiles) {
+            this.requestsCount = requestsCount;
+            this.overBudgetRequestsCount = overBudgetRequestsCount;
+            this.latencyPercentiles = latencyPercentiles;
+            this.allocationPercentiles = allocationPercentiles;
+        }
+
+        public long getRequestsCount() {
+            return requestsCount;
+        }
+
+        /**
+         * Get the number of requests which allocated more than the allocation budget.
+         *
+         * @return The number of requests over the budget (0 if the budget is disabled)
+         */
+        public long getOverBudgetRequestsCount() {
+            return overBudgetRequestsCount;
+        }
+
+        /**
+         * Get the p50, p95 and p99 latencies.
+         *
+         * @return The latency percentiles in nanoseconds
+         */
+        public long[] getLatencyPercentiles() {
+            return latencyPercentiles.clone();
+        }
+
+        /**
+         * Get the p50, p95 and p99 allocations.
+         *
+         * @return The allocation percentiles in bytes (-1 if not supported by the JVM)
+         */
+        public long[] getAllocationPercentiles() {
+            return allocationPercentiles.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "requests: " + requestsCount
+                    + ", latency p50/p95/p99: " + latencyPercentiles[0] / 1000 + "/" + latencyPercentiles[1] / 1000
+                    + "/" + latencyPercentiles[2] / 1000 + " us"
+                    + ", allocation p50/p95/p99: " + allocationPercentiles[0] + "/" + allocationPercentiles[1]
+                    + "/" + allocationPercentiles[2] + " bytes"
+                    + (allocationBudget > 0 ? ", over allocation budget: " + overBudgetRequestsCount : "");
+        }
+    }
+
+    /**
+     * Recorder keeping a sliding window of samples of a single completion provider.
+     */
+    private static class Recorder {
+        private final String provider;
+        private final long[] latencies;
+        private final long[] allocations;
+        private long requestsCount;
+        private long overBudgetRequestsCount;
+
+        private Recorder(String provider) {
+            this.provider = provider;
+            this.latencies = new long[SAMPLES_WINDOW_SIZE];
+            this.allocations = new long[SAMPLES_WINDOW_SIZE];
+            this.requestsCount = 0;
+            this.overBudgetRequestsCount = 0;
+        }
+
+        private void record(long latency, long allocatedBytes, boolean isOverBudget) {
+            boolean shouldReport;
+            synchronized (this) {
+                int index = (int) (requestsCount % SAMPLES_WINDOW_SIZE);
+                latencies[index] = latency;
+                allocations[index] = allocatedBytes;
+                requestsCount++;
+                if (isOverBudget) {
+                    overBudgetRequestsCount++;
+                }
+                shouldReport = reportInterval > 0 && requestsCount % reportInterval == 0;
+            }
+            if (shouldReport) {
+                logger.info("Cellery completion metrics of " + provider + " - " + summarize());
+            }
+        }
+
+        private synchronized Summary summarize() {
+            int samplesCount = (int) Math.min(requestsCount, SAMPLES_WINDOW_SIZE);
+            return new Summary(requestsCount, overBudgetRequestsCount,
+                    percentiles(Arrays.copyOf(latencies, samplesCount)),
+                    percentiles(Arrays.copyOf(allocations, samplesCount)));
+        }
+
+        private static long[] percentiles(long[] samples) {
+            long[] percentiles = new long[3];
+            if (samples.length > 0) {
+                Arrays.sort(samples);
+                percentiles[0] = samples[(int) Math.ceil(samples.length * 0.50) - 1];
+                percentiles[1] = samples[(int) Math.ceil(samples.length * 0.95) - 1];
+                percentiles[2] = samples[(int) Math.ceil(samples.length * 0.99) - 1];
+            }
+            return percentiles;
+        }
+    }
+
+    private CompletionMetrics() {   // Prevent initialization
+    }
+}
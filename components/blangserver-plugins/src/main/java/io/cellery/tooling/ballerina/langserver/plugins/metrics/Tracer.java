@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.metrics;
+
+import com.google.gson.Gson;
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracer recording the time spent in the phases of individual requests as spans.
+ *
+ * Tracing is disabled by default and is enabled by setting the cellery.ls.trace.file system property to the path of
+ * the trace file. Spans are written in the background to the trace file in the Chrome trace event format, which can be
+ * opened in chrome://tracing or Perfetto. Once the trace file reaches the maximum number of events, it is moved to a
+ * file with the ".1" suffix (replacing the previous one) and a new trace file is started.
+ *
+ * When tracing is disabled starting a span only returns a shared no-op span.
+ */
+public class Tracer {
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+    private static final String traceFile = System.getProperty(Constants.SystemProperties.TRACE_FILE);
+    private static final int maxEventsPerFile = Integer.getInteger(Constants.SystemProperties.TRACE_FILE_MAX_EVENTS,
+            100000);
+    private static final int EVENTS_QUEUE_CAPACITY = 65536;
+    private static final String ROTATED_TRACE_FILE_SUFFIX = ".1";
+    private static final Span NO_OP_SPAN = new Span(null, null, 0);
+    private static final TraceWriter writer = traceFile == null ? null : new TraceWriter(new File(traceFile));
+
+    /**
+     * Check whether tracing is enabled.
+     *
+     * @return True if spans are recorded
+     */
+    public static boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Start a span in the current thread.
+     *
+     * @param name The name of the span
+     * @return The span which should be ended in the same thread
+     */
+    public static Span start(String name) {
+        return start(name, null);
+    }
+
+    /**
+     * Start a span in the current thread.
+     *
+     * @param name The name of the span
+     * @param detail Detail shown with the span (for example the image being loaded) or null
+     * @return The span which should be ended in the same thread
+     */
+    public static Span start(String name, String detail) {
+        return writer == null ? NO_OP_SPAN : new Span(name, detail, System.nanoTime());
+    }
+
+    /**
+     * A phase of a request being recorded.
+     */
+    public static class Span {
+        private final String name;
+        private final String detail;
+        private final long startTime;
+
+        private Span(String name, String detail, long startTime) {
+            this.name = name;
+            this.detail = detail;
+            this.startTime = startTime;
+        }
+
+        /**
+         * End the span.
+         *
+         * This should be called from the thread which started the span.
+         */
+        public void end() {
+            if (name != null) {
+                Thread thread = Thread.currentThread();
+                writer.record(new Event(name, detail, thread.getId(), thread.getName(), startTime,
+                        System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Span ended and waiting to be written.
+     */
+    private static class Event {
+        private final String name;
+        private final String detail;
+        private final long threadId;
+        private final String threadName;
+        private final long startTime;
+        private final long endTime;
+
+        private Event(String name, String detail, long threadId, String threadName, long startTime, long endTime) {
+            this.name = name;
+            this.detail = detail;
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+
+    /**
+     * Writer of the trace file running in a background thread.
+     *
+     * Events are dropped instead of blocking the request threads if the writer cannot keep up.
+     */
+    private static class TraceWriter {
+        private final File file;
+        private final BlockingQueue<Event> events;
+        private final AtomicLong droppedEventsCount;
+        private final Gson gson;
+        private final String processId;
+        private final long baseTimeMicros;
+        private final long baseNanoTime;
+        private final Set<Long> namedThreadIds;
+        private Writer fileWriter;
+        private int fileEventsCount;
+        private boolean isFileEmpty;
+
+        private TraceWriter(File file) {
+            this.file = file;
+            this.events = new ArrayBlockingQueue<>(EVENTS_QUEUE_CAPACITY);
+            this.droppedEventsCount = new AtomicLong();
+            this.gson = new Gson();
+            String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+            this.processId = runtimeName.contains("@") ? runtimeName.substring(0, runtimeName.indexOf('@')) : "0";
+            this.baseTimeMicros = System.currentTimeMillis() * 1000;
+            this.baseNanoTime = System.nanoTime();
+            this.namedThreadIds = new HashSet<>();
+
+            Thread thread = new Thread(this::writeEvents, "cellery-trace-writer");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("Writing Cellery Language Server traces to " + file.getAbsolutePath());
+        }
+
+        private void record(Event event) {
+            if (!events.offer(event)) {
+                droppedEventsCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * Write the recorded events to the trace file until the language server exits.
+         */
+        private void writeEvents() {
+            List<Event> batch = new ArrayList<>();
+            while (true) {
+                try {
+                    batch.add(events.take());
+                    events.drainTo(batch);
+                    for (Event event : batch) {
+                        write(event);
+                    }
+                    long droppedEvents = droppedEventsCount.getAndSet(0);
+                    if (droppedEvents > 0) {
+                        logger.warn("Dropped " + droppedEvents + " Cellery trace events as the writer was behind");
+                    }
+                    if (fileWriter != null) {
+                        fileWriter.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    logger.warn("Failed to write Cellery trace events to " + file.getAbsolutePath(), e);
+                    closeFile();
+                }
+                batch.clear();
+            }
+        }
+
+        /**
+         * Write a single event as a complete event in the Chrome trace event format.
+         *
+         * The closing bracket of the events array is optional in the format and is written only when the file is
+         * rotated, so that the file can be opened at any time.
+         */
+        private void write(Event event) throws IOException {
+            if (fileWriter == null || fileEventsCount >= maxEventsPerFile) {
+                rotateFile();
+            }
+            if (namedThreadIds.add(event.threadId)) {
+                writeSeparator();
+                fileWriter.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + processId + ",\"tid\":"
+                        + event.threadId + ",\"args\":{\"name\":" + gson.toJson(event.threadName) + "}}");
+            }
+            long startTimeMicros = baseTimeMicros + (event.startTime - baseNanoTime) / 1000;
+            long durationMicros = (event.endTime - event.startTime) / 1000;
+            writeSeparator();
+            fileWriter.write("{\"name\":" + gson.toJson(event.name) + ",\"cat\":\"cellery\",\"ph\":\"X\",\"ts\":"
+                    + startTimeMicros + ",\"dur\":" + durationMicros + ",\"pid\":" + processId + ",\"tid\":"
+                    + event.threadId
+                    + (event.detail == null ? "" : ",\"args\":{\"detail\":" + gson.toJson(event.detail) + "}")
+                    + "}");
+            fileEventsCount++;
+        }
+
+        private void writeSeparator() throws IOException {
+            if (isFileEmpty) {
+                isFileEmpty = false;
+            } else {
+                fileWriter.write(",\n");
+            }
+        }
+
+        /**
+         * Start a new trace file moving the current trace file aside.
+         *
+         * A trace file left by a previous session is moved aside as well instead of being truncated by the first
+         * rotation.
+         */
+        private void rotateFile() throws IOException {
+            if (fileWriter != null) {
+                fileWriter.write("\n]\n");
+                closeFile();
+            }
+            if (file.exists()) {
+                Files.move(file.toPath(), new File(file.getPath() + ROTATED_TRACE_FILE_SUFFIX).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            File parentDirectory = file.getAbsoluteFile().getParentFile();
+            if (parentDirectory != null) {
+                Files.createDirectories(parentDirectory.toPath());
+            }
+            fileWriter = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+                    StandardCharsets.UTF_8));
+            fileWriter.write("[\n");
+            isFileEmpty = true;
+            fileEventsCount = 0;
+            namedThreadIds.clear();
+        }
+
+        private void closeFile() {
+            if (fileWriter != null) {
+                try {
+                    fileWriter.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close Cellery trace file " + file.getAbsolutePath(), e);
+                }
+                fileWriter = null;
+            }
+        }
+    }
+
+    private Tracer() {  // Prevent initialization
+    }
+}
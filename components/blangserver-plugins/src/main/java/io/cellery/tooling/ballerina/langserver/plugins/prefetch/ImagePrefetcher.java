@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.prefetch;
+
+import io.cellery.tooling.ballerina.langserver.plugins.Utils;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.visitor.CellerySourceScanner;
+import org.ballerinalang.langserver.compiler.DocumentServiceKeys;
+import org.ballerinalang.langserver.compiler.LSContext;
+import org.ballerinalang.langserver.compiler.workspace.WorkspaceDocumentManager;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prefetcher warming the images a document is likely to need before they are needed by a completion.
+ *
+ * The dependency image literals of the documents are scanned without compiling them, and the images matching the
+ * organization or image name being typed are loaded as well. All the work is done in a background thread.
+ */
+public class ImagePrefetcher {
+    private static final Logger logger = LoggerFactory.getLogger(ImagePrefetcher.class);
+    private static final int MAX_MATCHING_IMAGES = 16;
+    // "org/name prefix or "org prefix as a dependency value
+    private static final Pattern TYPED_IMAGE_FQN_PATTERN = Pattern.compile(
+            "\\w+\\s*:\\s*\"([\\w.-]+)(?:/([\\w.-]*))?$");
+    // org: "org", name: "name prefix or org: "org prefix in a dependency record
+    private static final Pattern TYPED_IMAGE_RECORD_PATTERN = Pattern.compile(
+            "\\borg\\s*:\\s*\"([\\w.-]*)(?:\"\\s*,\\s*name\\s*:\\s*\"([\\w.-]*))?$");
+    private static final ImagePrefetcher instance = new ImagePrefetcher();
+
+    private final ExecutorService executor;
+    private final Set<String> seenDocuments;
+    private final Map<String, String> pendingDocuments;
+
+    private ImagePrefetcher() {
+        this.executor = Executors.newSingleThreadExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "cellery-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.seenDocuments = ConcurrentHashMap.newKeySet();
+        this.pendingDocuments = new ConcurrentHashMap<>();
+    }
+
+    public static ImagePrefetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Prefetch the images relevant to the document of a language server context.
+     *
+     * The first time a document is seen, the other open documents of the workspace are prefetched as well.
+     *
+     * @param context Language Server Context
+     */
+    public void prefetch(LSContext context) {
+        try {
+            String fileUri = context.get(DocumentServiceKeys.FILE_URI_KEY);
+            String content = Utils.getDocumentContent(context);
+            if (content == null) {
+                return;
+            }
+            schedulePrefetch(fileUri, content);
+            if (seenDocuments.add(fileUri)) {
+                prefetchOpenDocuments(context.get(DocumentServiceKeys.DOC_MANAGER_KEY));
+            }
+
+            // Prefetching the images matching the image name being typed
+            TextDocumentPositionParams positionParams = context.get(DocumentServiceKeys.POSITION_KEY);
+            String typedLine = positionParams == null
+                    ? null
+                    : Utils.getLinePrefix(content, positionParams.getPosition());
+            if (typedLine != null) {
+                Matcher matcher = TYPED_IMAGE_RECORD_PATTERN.matcher(typedLine);
+                boolean isTypingImageName = matcher.find();
+                if (!isTypingImageName) {
+                    matcher = TYPED_IMAGE_FQN_PATTERN.matcher(typedLine);
+                    isTypingImageName = matcher.find();
+                }
+                if (isTypingImageName && !matcher.group(1).isEmpty()) {
+                    String orgPrefix = matcher.group(1);
+                    String namePrefix = matcher.group(2);
+                    executor.execute(() -> ImageManager.getInstance().prefetchMatchingImages(orgPrefix, namePrefix,
+                            MAX_MATCHING_IMAGES));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to prefetch Cellery Images", e);
+        }
+    }
+
+    /**
+     * Prefetch the images used by the open documents which had not been seen before.
+     *
+     * @param documentManager The workspace document manager
+     */
+    private void prefetchOpenDocuments(WorkspaceDocumentManager documentManager) {
+        if (documentManager == null) {
+            return;
+        }
+        for (Path filePath : documentManager.getAllFilePaths()) {
+            String fileUri = filePath.toUri().toString();
+            if (documentManager.isFileOpen(filePath) && seenDocuments.add(fileUri)) {
+                try {
+                    schedulePrefetch(fileUri, documentManager.getFileContent(filePath));
+                } catch (Exception e) {
+                    logger.warn("Failed to read document " + fileUri + " for prefetching Cellery Images", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule scanning a document for dependency images to be prefetched.
+     *
+     * If the document is already waiting to be scanned only its content is replaced.
+     *
+     * @param fileUri The URI of the document
+     * @param content The latest content of the document
+     */
+    private void schedulePrefetch(String fileUri, String content) {
+        if (pendingDocuments.put(fileUri, content) == null) {
+            executor.execute(() -> {
+                String latestContent = pendingDocuments.remove(fileUri);
+                if (latestContent != null) {
+                    List<String> imageFQNs = new ArrayList<>();
+                    for (CellerySourceScanner.ImageLiteral imageLiteral
+                            : CellerySourceScanner.scan(latestContent).getImageLiterals()) {
+                        imageFQNs.add(imageLiteral.getImageFQN());
+                    }
+                    ImageManager.getInstance().prefetchImages(imageFQNs);
+                }
+            });
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package io.cellery.tooling.ballerina.langserver.plugins.visitor;
 
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
 import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
 import org.ballerinalang.langserver.compiler.LSContext;
 
@@ -43,6 +44,12 @@ public class CelleryKeys {
      */
     public static final LSContext.Key<Map<String, Image>> IMAGE_REFERENCES = new LSContext.Key<>();
 
+    /*
+     * Used for storing the latency budget of the current completion request. Cellery work which is not finished
+     * before the deadline is left running in the background.
+     */
+    public static final LSContext.Key<CompletionDeadline> COMPLETION_DEADLINE = new LSContext.Key<>();
+
     private CelleryKeys() {     // Prevent initialization
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.visitor;
+
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import io.cellery.tooling.ballerina.langserver.plugins.Utils;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import org.ballerinalang.model.tree.expressions.ExpressionNode;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangExpression;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangInvocation;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangLiteral;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangRecordLiteral;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangRecordLiteral.BLangRecordKeyValue;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangSimpleVarRef;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extractor of Cellery Components and References from Ballerina variables.
+ */
+public class CelleryModelExtractor {
+    private final Map<String, Component> components;
+    private final Map<String, Image> imageReferences;
+    private final CompletionDeadline deadline;
+    private final ImageManager.ImageResolution imageResolution;
+    private boolean hasUnresolvedImages;
+
+    /**
+     * Create a Cellery model extractor.
+     *
+     * @param components The map to which the extracted components should be added
+     * @param imageReferences The map to which the extracted references should be added
+     * @param deadline The deadline of the completion request or null if images should be waited for indefinitely
+     */
+    public CelleryModelExtractor(Map<String, Component> components, Map<String, Image> imageReferences,
+                                 CompletionDeadline deadline) {
+        this.components = components;
+        this.imageReferences = imageReferences;
+        this.deadline = deadline;
+        this.imageResolution = null;
+        this.hasUnresolvedImages = false;
+    }
+
+    /**
+     * Create a Cellery model extractor which takes the dependency images from an existing resolution.
+     *
+     * @param components The map to which the extracted components should be added
+     * @param imageReferences The map to which the extracted references should be added
+     * @param imageResolution The resolution of the dependency images of all the extracted variables
+     * @see #resolveImages(Collection, CompletionDeadline)
+     */
+    public CelleryModelExtractor(Map<String, Component> components, Map<String, Image> imageReferences,
+                                 ImageManager.ImageResolution imageResolution) {
+        this.components = components;
+        this.imageReferences = imageReferences;
+        this.deadline = null;
+        this.imageResolution = imageResolution;
+        this.hasUnresolvedImages = false;
+    }
+
+    /**
+     * Check whether any of the images referred by the extracted variables could not be resolved.
+     *
+     * @return True if an image was not available in the local repository or was not ready before the deadline
+     */
+    public boolean hasUnresolvedImages() {
+        return hasUnresolvedImages;
+    }
+
+    /**
+     * Extract Cellery information from a variable.
+     *
+     * @param variableName The name of the variable
+     * @param initialExpression The expression assigned to the variable
+     */
+    public void extract(String variableName, BLangExpression initialExpression) {
+        BLangExpression assignedExpression = Utils.getActualExpression(initialExpression);
+        if (Utils.checkRecordType(assignedExpression, Constants.CelleryTypes.COMPONENT)) {
+            BLangRecordLiteral recordLiteral = (BLangRecordLiteral) assignedExpression;
+            Component component = new Component();
+            components.put(variableName, component);
+
+            // Extracting component name
+            BLangExpression name = Utils.getActualExpression(Utils.getFieldValue(recordLiteral,
+                    Component.NAME_FIELD_NAME));
+            if (name instanceof BLangLiteral) {
+                component.setName(((BLangLiteral) name).getValue().toString());
+            }
+
+            // Extracting dependencies information
+            Map<String, String> dependencyImageFQNs = extractDependencyImageFQNs(recordLiteral);
+            if (dependencyImageFQNs != null) {
+                component.setDependencies(resolveDependencies(dependencyImageFQNs));
+            }
+        } else if (Utils.checkInvocationReturnType(assignedExpression, Constants.CelleryTypes.REFERENCE)) {
+            // Resolving references at definition
+            BLangInvocation invocation = (BLangInvocation) assignedExpression;
+            List<? extends ExpressionNode> argumentExpressions = invocation.getArgumentExpressions();
+            ExpressionNode firstArgument = argumentExpressions.get(0);
+            ExpressionNode secondArgument = argumentExpressions.get(1);
+            if (firstArgument instanceof BLangSimpleVarRef && secondArgument instanceof BLangLiteral) {
+                String componentVar = ((BLangSimpleVarRef) firstArgument).getVariableName().getValue();
+                String alias = ((BLangLiteral) secondArgument).getValue().toString();
+                Component component = components.get(componentVar);
+                if (component != null && component.getDependencies() != null) {
+                    imageReferences.put(variableName, component.getDependencies().get(alias));
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve the dependency images of all the components assigned by a set of expressions in one pass within the
+     * deadline.
+     *
+     * The resolution can be passed to the extractors of the expressions so that the images of a whole module are
+     * requested together instead of once per component.
+     *
+     * @param initialExpressions The expressions assigned to the variables which will be extracted
+     * @param deadline The deadline of the completion request or null if images should be waited for indefinitely
+     * @return The resolution of the dependency images
+     */
+    public static ImageManager.ImageResolution resolveImages(Collection<BLangExpression> initialExpressions,
+                                                             CompletionDeadline deadline) {
+        Set<String> imageFQNs = new HashSet<>();
+        for (BLangExpression initialExpression : initialExpressions) {
+            BLangExpression assignedExpression = Utils.getActualExpression(initialExpression);
+            if (Utils.checkRecordType(assignedExpression, Constants.CelleryTypes.COMPONENT)) {
+                Map<String, String> dependencyImageFQNs =
+                        extractDependencyImageFQNs((BLangRecordLiteral) assignedExpression);
+                if (dependencyImageFQNs != null) {
+                    imageFQNs.addAll(dependencyImageFQNs.values());
+                }
+            }
+        }
+        return ImageManager.getInstance().getImages(imageFQNs,
+                deadline == null ? Long.MAX_VALUE : deadline.getRemainingNanos());
+    }
+
+    /**
+     * Extract the image FQNs of the dependencies of a component.
+     *
+     * @param componentRecord The record literal assigned to the component
+     * @return The image FQNs of the dependencies with the dependency aliases as keys or null if the dependencies are
+     *         not specified as a record
+     */
+    private static Map<String, String> extractDependencyImageFQNs(BLangRecordLiteral componentRecord) {
+        BLangExpression dependencies = Utils.getActualExpression(Utils.getFieldValue(componentRecord,
+                Component.DEPENDENCIES_FIELD_NAME));
+        if (!Utils.checkRecordType(dependencies, Constants.CelleryTypes.DEPENDENCIES)) {
+            return null;
+        }
+        Map<String, String> dependencyImageFQNs = new HashMap<>();
+        // Extracting cell dependencies from Component.dependencies.cells
+        BLangExpression cellDependencies = Utils.getActualExpression(Utils.getFieldValue(
+                (BLangRecordLiteral) dependencies, Component.DEPENDENCIES_CELLS_FIELD_NAME));
+        if (cellDependencies instanceof BLangRecordLiteral) {
+            dependencyImageFQNs.putAll(extractDependencyInformation((BLangRecordLiteral) cellDependencies));
+        }
+        // Extracting composite dependencies from Component.dependencies.composites
+        BLangExpression compositeDependencies = Utils.getActualExpression(Utils.getFieldValue(
+                (BLangRecordLiteral) dependencies, Component.DEPENDENCIES_COMPOSITES_FIELD_NAME));
+        if (compositeDependencies instanceof BLangRecordLiteral) {
+            dependencyImageFQNs.putAll(extractDependencyInformation((BLangRecordLiteral) compositeDependencies));
+        }
+        return dependencyImageFQNs;
+    }
+
+    /**
+     * Extract the component dependencies from the cell/composite dependencies map.
+     *
+     * @param dependencyMap The record (map)
+     * @return The image FQNs of the component dependencies with the dependency aliases as keys
+     */
+    private static Map<String, String> extractDependencyInformation(BLangRecordLiteral dependencyMap) {
+        List<BLangRecordKeyValue> recordEntries = dependencyMap.getKeyValuePairs();
+        Map<String, String> dependencyImageFQNs = new HashMap<>();
+        for (BLangRecordKeyValue recordKeyValue : recordEntries) {
+            if (recordKeyValue.getKey() instanceof BLangSimpleVarRef) {
+                BLangSimpleVarRef recordKey = (BLangSimpleVarRef) recordKeyValue.getKey();
+                String imageFQN = null;
+                BLangExpression recordValue = Utils.getActualExpression(recordKeyValue.getValue());
+                if (recordValue instanceof BLangRecordLiteral) {
+                    // Extracting dependency specified as record {org: string, name: string, ver: string}
+                    BLangRecordLiteral imageRecordLiteral = (BLangRecordLiteral) recordValue;
+                    BLangExpression orgNameExpression = Utils.getActualExpression(Utils.getFieldValue(
+                            imageRecordLiteral, Component.DEPENDENCIES_IMAGE_ORG_FIELD_NAME));
+                    BLangExpression imageNameExpression = Utils.getActualExpression(Utils.getFieldValue(
+                            imageRecordLiteral, Component.DEPENDENCIES_IMAGE_NAME_FIELD_NAME));
+                    BLangExpression versionExpression = Utils.getActualExpression(Utils.getFieldValue(
+                            imageRecordLiteral, Component.DEPENDENCIES_IMAGE_VERSION_FIELD_NAME));
+                    if (orgNameExpression instanceof BLangLiteral
+                            && imageNameExpression instanceof BLangLiteral
+                            && versionExpression instanceof BLangLiteral) {
+                        imageFQN = ((BLangLiteral) orgNameExpression).getValue() + "/"
+                                + ((BLangLiteral) imageNameExpression).getValue() + ":"
+                                + ((BLangLiteral) versionExpression).getValue();
+                    }
+                } else if (recordValue instanceof BLangLiteral) {
+                    // Extracting dependency specified as string image FQN (org/name:ver)
+                    imageFQN = ((BLangLiteral) recordValue).getValue().toString();
+                }
+                if (imageFQN != null) {
+                    dependencyImageFQNs.put(recordKey.getVariableName().getValue(), imageFQN);
+                }
+            }
+        }
+        return dependencyImageFQNs;
+    }
+
+    /**
+     * Resolve the dependency images of a component.
+     *
+     * The images are taken from the resolution of the module if the extractor was given one. Otherwise all the
+     * dependency images of the component are requested in one pass within the deadline. If some images are not ready
+     * before the deadline, the images currently in memory are used and the images are left to be resolved again by a
+     * later request.
+     *
+     * @param dependencyImageFQNs The image FQNs of the dependencies with the dependency aliases as keys
+     * @return The resolved dependency images with the dependency aliases as keys
+     */
+    private Map<String, Image> resolveDependencies(Map<String, String> dependencyImageFQNs) {
+        ImageManager.ImageResolution imageResolution = this.imageResolution;
+        if (imageResolution == null) {
+            imageResolution = ImageManager.getInstance().getImages(dependencyImageFQNs.values(),
+                    deadline == null ? Long.MAX_VALUE : deadline.getRemainingNanos());
+        }
+        Map<String, Image> componentDependencies = new HashMap<>();
+        for (Map.Entry<String, String> dependencyEntry : dependencyImageFQNs.entrySet()) {
+            Image image = imageResolution.getImages().get(dependencyEntry.getValue());
+            if (image != null) {
+                componentDependencies.put(dependencyEntry.getKey(), image);
+            }
+        }
+        hasUnresolvedImages |= !imageResolution.isComplete()
+                || componentDependencies.size() < dependencyImageFQNs.size();
+        return componentDependencies;
+    }
+}
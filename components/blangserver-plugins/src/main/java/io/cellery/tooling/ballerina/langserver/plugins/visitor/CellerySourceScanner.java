@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.visitor;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lightweight scanner for collecting Cellery information from the source of a Ballerina file.
+ *
+ * Unlike {@link CelleryTreeVisitor} this does not require the file to be compiled. The dependencies of components,
+ * the references and the reference keys used are recognized using their textual patterns, which covers the literal
+ * forms generated by the Cellery snippets and completions.
+ */
+public class CellerySourceScanner {
+    private static final Pattern COMPONENT_PATTERN = Pattern.compile("\\bcellery:Component\\s+(\\w+)\\s*=\\s*\\{");
+    private static final Pattern DEPENDENCIES_PATTERN = Pattern.compile("\\bdependencies\\s*:\\s*\\{");
+    private static final Pattern DEPENDENCY_GROUP_PATTERN = Pattern.compile("\\b(?:cells|composites)\\s*:\\s*\\{");
+    private static final Pattern RECORD_DEPENDENCY_PATTERN = Pattern.compile(
+            "(\\w+)\\s*:\\s*(?:<[^<>]*>\\s*)?\\{([^{}]*)}");
+    private static final Pattern STRING_DEPENDENCY_PATTERN = Pattern.compile("(\\w+)\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern IMAGE_FQN_PATTERN = Pattern.compile("([^/:\\s]+)/([^/:\\s]+):([^/:\\s]+)");
+    private static final Pattern REFERENCE_BINDING_PATTERN = Pattern.compile("\\b(?:cellery:Reference|var)\\s+(\\w+)"
+            + "\\s*=\\s*cellery:getReference\\(\\s*(\\w+)\\s*,\\s*\"([^\"]*)\"\\s*\\)\\s*;");
+    private static final Pattern REFERENCE_KEY_PATTERN = Pattern.compile("(?:\\b(\\w+)|cellery:getReference"
+            + "\\(\\s*(\\w+)\\s*,\\s*\"([^\"]*)\"\\s*\\))\\.get\\(\\s*\"([^\"]*)\"\\s*\\)");
+
+    /**
+     * Scan the source of a Ballerina file.
+     *
+     * @param content The content of the file
+     * @return The scanned information
+     */
+    public static ScanResult scan(String content) {
+        String source = removeComments(content);
+        int[] lineStartOffsets = getLineStartOffsets(source);
+        ScanResult scanResult = new ScanResult();
+
+        // Collecting component dependencies
+        Matcher componentMatcher = COMPONENT_PATTERN.matcher(source);
+        while (componentMatcher.find()) {
+            int componentEndOffset = findClosingBrace(source, componentMatcher.end() - 1);
+            if (componentEndOffset > 0) {
+                Map<String, String> dependencies = new TreeMap<>();
+                scanDependencies(source, lineStartOffsets, componentMatcher.end(), componentEndOffset,
+                        scanResult, dependencies);
+                scanResult.componentDependencies.put(componentMatcher.group(1), dependencies);
+            }
+        }
+
+        // Collecting references and the reference keys used
+        Matcher referenceBindingMatcher = REFERENCE_BINDING_PATTERN.matcher(source);
+        while (referenceBindingMatcher.find()) {
+            scanResult.referenceBindings.put(referenceBindingMatcher.group(1),
+                    Arrays.asList(referenceBindingMatcher.group(2), referenceBindingMatcher.group(3)));
+        }
+        Matcher referenceKeyMatcher = REFERENCE_KEY_PATTERN.matcher(source);
+        while (referenceKeyMatcher.find()) {
+            Range keyRange = getRange(lineStartOffsets, referenceKeyMatcher.start(4) - 1,
+                    referenceKeyMatcher.end(4) + 1);
+            ReferenceKeyUsage referenceKeyUsage;
+            if (referenceKeyMatcher.group(1) != null) {
+                referenceKeyUsage = new ReferenceKeyUsage(referenceKeyMatcher.group(1), null, null,
+                        referenceKeyMatcher.group(4), keyRange, referenceKeyMatcher.start());
+            } else {
+                referenceKeyUsage = new ReferenceKeyUsage(null, referenceKeyMatcher.group(2),
+                        referenceKeyMatcher.group(3), referenceKeyMatcher.group(4), keyRange,
+                        referenceKeyMatcher.start());
+            }
+            scanResult.referenceKeyUsages.add(referenceKeyUsage);
+        }
+        return scanResult;
+    }
+
+    /**
+     * Scan the dependencies of a component.
+     *
+     * @param source The source of the file
+     * @param lineStartOffsets The offsets at which each line starts
+     * @param componentStartOffset The offset at which the component record starts
+     * @param componentEndOffset The offset at which the component record ends
+     * @param scanResult The scan result to which the image literals should be added
+     * @param dependencies The map to which the dependency aliases and image FQNs should be added
+     */
+    private static void scanDependencies(String source, int[] lineStartOffsets, int componentStartOffset,
+                                         int componentEndOffset, ScanResult scanResult,
+                                         Map<String, String> dependencies) {
+        Matcher dependenciesMatcher = DEPENDENCIES_PATTERN.matcher(source).region(componentStartOffset,
+                componentEndOffset);
+        if (!dependenciesMatcher.find()) {
+            return;
+        }
+        int dependenciesEndOffset = findClosingBrace(source, dependenciesMatcher.end() - 1);
+        if (dependenciesEndOffset < 0) {
+            return;
+        }
+        Matcher groupMatcher = DEPENDENCY_GROUP_PATTERN.matcher(source).region(dependenciesMatcher.end(),
+                dependenciesEndOffset);
+        while (groupMatcher.find()) {
+            int groupEndOffset = findClosingBrace(source, groupMatcher.end() - 1);
+            if (groupEndOffset < 0) {
+                continue;
+            }
+            // Dependencies specified as records {org: string, name: string, ver: string}
+            StringBuilder groupSource = new StringBuilder(source.substring(0, groupEndOffset));
+            Matcher recordMatcher = RECORD_DEPENDENCY_PATTERN.matcher(source).region(groupMatcher.end(),
+                    groupEndOffset);
+            while (recordMatcher.find()) {
+                String org = getRecordField(recordMatcher.group(2), "org");
+                String name = getRecordField(recordMatcher.group(2), "name");
+                String version = getRecordField(recordMatcher.group(2), "ver");
+                if (org != null && name != null && version != null) {
+                    addImageLiteral(scanResult, dependencies, recordMatcher.group(1), org, name, version,
+                            getRange(lineStartOffsets, recordMatcher.start(2) - 1, recordMatcher.end()),
+                            recordMatcher.start());
+                }
+                for (int i = recordMatcher.start(); i < recordMatcher.end(); i++) {
+                    groupSource.setCharAt(i, ' ');
+                }
+            }
+            // Dependencies specified as string image FQNs (org/name:ver)
+            Matcher stringMatcher = STRING_DEPENDENCY_PATTERN.matcher(groupSource).region(groupMatcher.end(),
+                    groupEndOffset);
+            while (stringMatcher.find()) {
+                Matcher imageFQNMatcher = IMAGE_FQN_PATTERN.matcher(stringMatcher.group(2));
+                if (imageFQNMatcher.matches()) {
+                    addImageLiteral(scanResult, dependencies, stringMatcher.group(1), imageFQNMatcher.group(1),
+                            imageFQNMatcher.group(2), imageFQNMatcher.group(3),
+                            getRange(lineStartOffsets, stringMatcher.start(2) - 1, stringMatcher.end(2) + 1),
+                            stringMatcher.start());
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a dependency image literal to the scan result.
+     */
+    private static void addImageLiteral(ScanResult scanResult, Map<String, String> dependencies, String alias,
+                                        String org, String name, String version, Range range, int offset) {
+        ImageLiteral imageLiteral = new ImageLiteral(alias, org, name, version, range, offset);
+        scanResult.imageLiterals.add(imageLiteral);
+        dependencies.put(alias, imageLiteral.getImageFQN());
+    }
+
+    /**
+     * Get the value of a string field in the source of a record.
+     *
+     * @param recordSource The source of the record without the braces
+     * @param fieldName The name of the field
+     * @return The value of the field or null if the field is not a string literal
+     */
+    private static String getRecordField(String recordSource, String fieldName) {
+        Matcher fieldMatcher = Pattern.compile("\\b" + fieldName + "\\s*:\\s*\"([^\"]*)\"").matcher(recordSource);
+        return fieldMatcher.find() ? fieldMatcher.group(1) : null;
+    }
+
+    /**
+     * Replace the comments in a Ballerina source with spaces while preserving the offsets of the other characters.
+     *
+     * @param content The Ballerina source
+     * @return The source without comments
+     */
+    private static String removeComments(String content) {
+        char[] source = content.toCharArray();
+        boolean isInString = false;
+        for (int i = 0; i < source.length; i++) {
+            if (source[i] == '"' && (i == 0 || source[i - 1] != '\\')) {
+                isInString = !isInString;
+            } else if (source[i] == '\n') {
+                isInString = false;
+            } else if (!isInString && source[i] == '/' && i + 1 < source.length && source[i + 1] == '/') {
+                while (i < source.length && source[i] != '\n') {
+                    source[i] = ' ';
+                    i++;
+                }
+                i--;
+            }
+        }
+        return new String(source);
+    }
+
+    /**
+     * Find the brace closing a block.
+     *
+     * @param source The Ballerina source
+     * @param openingBraceOffset The offset of the opening brace
+     * @return The offset of the closing brace or -1 if the block is not closed
+     */
+    private static int findClosingBrace(String source, int openingBraceOffset) {
+        int depth = 0;
+        boolean isInString = false;
+        for (int i = openingBraceOffset; i < source.length(); i++) {
+            char character = source.charAt(i);
+            if (character == '"' && source.charAt(i - 1) != '\\') {
+                isInString = !isInString;
+            } else if (!isInString && character == '{') {
+                depth++;
+            } else if (!isInString && character == '}') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int[] getLineStartOffsets(String source) {
+        List<Integer> lineStartOffsets = new ArrayList<>();
+        lineStartOffsets.add(0);
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lineStartOffsets.add(i + 1);
+            }
+        }
+        return lineStartOffsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Position getPosition(int[] lineStartOffsets, int offset) {
+        int line = Arrays.binarySearch(lineStartOffsets, offset);
+        if (line < 0) {
+            line = -line - 2;
+        }
+        return new Position(line, offset - lineStartOffsets[line]);
+    }
+
+    private static Range getRange(int[] lineStartOffsets, int startOffset, int endOffset) {
+        return new Range(getPosition(lineStartOffsets, startOffset), getPosition(lineStartOffsets, endOffset));
+    }
+
+    /**
+     * Cellery information scanned from a Ballerina file.
+     */
+    public static class ScanResult {
+        private final Map<String, Map<String, String>> componentDependencies = new TreeMap<>();
+        private final Map<String, List<String>> referenceBindings = new TreeMap<>();
+        private final List<ImageLiteral> imageLiterals = new ArrayList<>();
+        private final List<ReferenceKeyUsage> referenceKeyUsages = new ArrayList<>();
+
+        /**
+         * Get the dependencies of the components.
+         *
+         * @return The dependency aliases and image FQNs with the component variable names as keys
+         */
+        public Map<String, Map<String, String>> getComponentDependencies() {
+            return Collections.unmodifiableMap(componentDependencies);
+        }
+
+        /**
+         * Get the references defined using cellery:getReference(component, "alias").
+         *
+         * @return The component variable name and the alias with the reference variable names as keys
+         */
+        public Map<String, List<String>> getReferenceBindings() {
+            return Collections.unmodifiableMap(referenceBindings);
+        }
+
+        public List<ImageLiteral> getImageLiterals() {
+            return Collections.unmodifiableList(imageLiterals);
+        }
+
+        public List<ReferenceKeyUsage> getReferenceKeyUsages() {
+            return Collections.unmodifiableList(referenceKeyUsages);
+        }
+
+        /**
+         * Resolve the image FQN a reference key usage refers to.
+         *
+         * @param referenceKeyUsage The reference key usage
+         * @return The image FQN or null if the reference cannot be resolved
+         */
+        public String resolveImageFQN(ReferenceKeyUsage referenceKeyUsage) {
+            String componentVariable = referenceKeyUsage.getComponentVariable();
+            String alias = referenceKeyUsage.getAlias();
+            if (referenceKeyUsage.getReferenceVariable() != null) {
+                List<String> referenceBinding = referenceBindings.get(referenceKeyUsage.getReferenceVariable());
+                if (referenceBinding == null) {
+                    return null;
+                }
+                componentVariable = referenceBinding.get(0);
+                alias = referenceBinding.get(1);
+            }
+            Map<String, String> dependencies = componentDependencies.get(componentVariable);
+            return dependencies == null ? null : dependencies.get(alias);
+        }
+
+    }
+
+    /**
+     * An image used as a dependency of a component.
+     */
+    public static class ImageLiteral {
+        private final String alias;
+        private final String org;
+        private final String name;
+        private final String version;
+        private final Range range;
+        private final int offset;
+
+        private ImageLiteral(String alias, String org, String name, String version, Range range, int offset) {
+            this.alias = alias;
+            this.org = org;
+            this.name = name;
+            this.version = version;
+            this.range = range;
+            this.offset = offset;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public String getOrg() {
+            return org;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getImageFQN() {
+            return org + "/" + name + ":" + version;
+        }
+
+        public Range getRange() {
+            return range;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+    }
+
+    /**
+     * A reference key used in a get("key") call on a Cellery Reference.
+     */
+    public static class ReferenceKeyUsage {
+        private final String referenceVariable;
+        private final String componentVariable;
+        private final String alias;
+        private final String key;
+        private final Range range;
+        private final int offset;
+
+        private ReferenceKeyUsage(String referenceVariable, String componentVariable, String alias, String key,
+                                  Range range, int offset) {
+            this.referenceVariable = referenceVariable;
+            this.componentVariable = componentVariable;
+            this.alias = alias;
+            this.key = key;
+            this.range = range;
+            this.offset = offset;
+        }
+
+        /**
+         * Get the reference variable on which get("key") is called.
+         *
+         * @return The variable name or null if get("key") is called directly on cellery:getReference(...)
+         */
+        public String getReferenceVariable() {
+            return referenceVariable;
+        }
+
+        public String getComponentVariable() {
+            return componentVariable;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Range getRange() {
+            return range;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+    }
+
+    private CellerySourceScanner() {    // Prevent initialization
+    }
+}
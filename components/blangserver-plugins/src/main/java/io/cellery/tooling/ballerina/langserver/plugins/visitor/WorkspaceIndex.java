@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.visitor;
+
+import io.cellery.tooling.ballerina.langserver.plugins.CompletionDeadline;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager;
+import io.cellery.tooling.ballerina.langserver.plugins.images.ImageManager.Image;
+import org.wso2.ballerinalang.compiler.tree.BLangCompilationUnit;
+import org.wso2.ballerinalang.compiler.tree.BLangPackage;
+import org.wso2.ballerinalang.compiler.tree.BLangSimpleVariable;
+import org.wso2.ballerinalang.compiler.tree.expressions.BLangExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the Cellery Components and References defined at module level across all the files of the workspace.
+ *
+ * The index of a module is updated file by file, and only the files of which the module level variables changed are
+ * extracted again. The dependency images of all the changed files are resolved together, and files of which some
+ * images could not be resolved are extracted again only after the images in memory changed. The merged view of a
+ * module is rebuilt on change so that lookups do not depend on the number of files in the module.
+ */
+public class WorkspaceIndex {
+    private static final WorkspaceIndex instance = new WorkspaceIndex();
+
+    private final Map<String, ModuleIndex> modules = new ConcurrentHashMap<>();
+
+    public static WorkspaceIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Update the index of a module with the latest compiled package.
+     *
+     * @param moduleKey The key uniquely identifying the module in the workspace
+     * @param bLangPackage The compiled package of the module
+     * @param deadline The deadline of the completion request or null if images should be waited for indefinitely
+     */
+    public void update(String moduleKey, BLangPackage bLangPackage, CompletionDeadline deadline) {
+        Map<String, List<BLangSimpleVariable>> fileVariables = new HashMap<>();
+        for (BLangSimpleVariable globalVariable : bLangPackage.globalVars) {
+            if (globalVariable.pos != null && globalVariable.pos.src != null) {
+                fileVariables.computeIfAbsent(globalVariable.pos.src.cUnitName, k -> new ArrayList<>())
+                        .add(globalVariable);
+            }
+        }
+        for (BLangCompilationUnit compilationUnit : bLangPackage.compUnits) {
+            fileVariables.putIfAbsent(compilationUnit.name, Collections.emptyList());
+        }
+        modules.computeIfAbsent(moduleKey, k -> new ModuleIndex()).update(fileVariables, deadline);
+    }
+
+    /**
+     * Get the components defined at module level in a module.
+     *
+     * @param moduleKey The key uniquely identifying the module in the workspace
+     * @return The components with the variable names as keys
+     */
+    public Map<String, Component> getComponents(String moduleKey) {
+        ModuleIndex moduleIndex = modules.get(moduleKey);
+        return moduleIndex == null ? Collections.emptyMap() : moduleIndex.components;
+    }
+
+    /**
+     * Get the references defined at module level in a module.
+     *
+     * @param moduleKey The key uniquely identifying the module in the workspace
+     * @return The images referred with the variable names as keys
+     */
+    public Map<String, Image> getImageReferences(String moduleKey) {
+        ModuleIndex moduleIndex = modules.get(moduleKey);
+        return moduleIndex == null ? Collections.emptyMap() : moduleIndex.imageReferences;
+    }
+
+    /**
+     * Index of a single module.
+     */
+    private static class ModuleIndex {
+        private final Map<String, FileIndex> files = new HashMap<>();
+        private volatile Map<String, Component> components = Collections.emptyMap();
+        private volatile Map<String, Image> imageReferences = Collections.emptyMap();
+
+        /**
+         * Update the module index with the module level variables of the files in the module.
+         *
+         * @param fileVariables The module level variables with the file names as keys
+         * @param deadline The deadline of the completion request or null if images should be waited for indefinitely
+         */
+        private synchronized void update(Map<String, List<BLangSimpleVariable>> fileVariables,
+                                         CompletionDeadline deadline) {
+            boolean isChanged = files.keySet().retainAll(fileVariables.keySet());
+
+            // Files with unresolved images are extracted again only after the images in memory changed
+            long imagesGeneration = ImageManager.getInstance().getGeneration();
+            Map<String, String> changedFileFingerprints = new HashMap<>();
+            List<BLangExpression> changedExpressions = new ArrayList<>();
+            for (Map.Entry<String, List<BLangSimpleVariable>> fileEntry : fileVariables.entrySet()) {
+                String fingerprint = getFingerprint(fileEntry.getValue());
+                FileIndex fileIndex = files.get(fileEntry.getKey());
+                if (fileIndex == null || !fileIndex.fingerprint.equals(fingerprint)
+                        || (fileIndex.hasUnresolvedImages && fileIndex.imagesGeneration != imagesGeneration)) {
+                    changedFileFingerprints.put(fileEntry.getKey(), fingerprint);
+                    for (BLangSimpleVariable variable : fileEntry.getValue()) {
+                        changedExpressions.add(variable.getInitialExpression());
+                    }
+                }
+            }
+            if (!changedFileFingerprints.isEmpty()) {
+                ImageManager.ImageResolution imageResolution =
+                        CelleryModelExtractor.resolveImages(changedExpressions, deadline);
+                for (Map.Entry<String, String> changedFileEntry : changedFileFingerprints.entrySet()) {
+                    files.put(changedFileEntry.getKey(), new FileIndex(changedFileEntry.getValue(),
+                            fileVariables.get(changedFileEntry.getKey()), imageResolution, imagesGeneration));
+                }
+                isChanged = true;
+            }
+            if (isChanged) {
+                Map<String, Component> mergedComponents = new HashMap<>();
+                Map<String, Image> mergedImageReferences = new HashMap<>();
+                for (FileIndex fileIndex : files.values()) {
+                    mergedComponents.putAll(fileIndex.components);
+                    mergedImageReferences.putAll(fileIndex.imageReferences);
+                }
+                components = Collections.unmodifiableMap(mergedComponents);
+                imageReferences = Collections.unmodifiableMap(mergedImageReferences);
+            }
+        }
+
+        /**
+         * Get the fingerprint of the module level variables of a file.
+         *
+         * @param variables The module level variables of the file
+         * @return The fingerprint
+         */
+        private static String getFingerprint(List<BLangSimpleVariable> variables) {
+            StringBuilder fingerprintBuilder = new StringBuilder();
+            for (BLangSimpleVariable variable : variables) {
+                fingerprintBuilder.append(variable.getName().getValue())
+                        .append("=")
+                        .append(variable.getInitialExpression())
+                        .append(";");
+            }
+            return fingerprintBuilder.toString();
+        }
+    }
+
+    /**
+     * Index of a single file in a module.
+     */
+    private static class FileIndex {
+        private final String fingerprint;
+        private final Map<String, Component> components;
+        private final Map<String, Image> imageReferences;
+        private final boolean hasUnresolvedImages;
+        private final long imagesGeneration;
+
+        private FileIndex(String fingerprint, List<BLangSimpleVariable> variables,
+                          ImageManager.ImageResolution imageResolution, long imagesGeneration) {
+            this.fingerprint = fingerprint;
+            this.imagesGeneration = imagesGeneration;
+            this.components = new LinkedHashMap<>();
+            this.imageReferences = new LinkedHashMap<>();
+            CelleryModelExtractor modelExtractor = new CelleryModelExtractor(components, imageReferences,
+                    imageResolution);
+            for (BLangSimpleVariable variable : variables) {
+                modelExtractor.extract(variable.getName().getValue(), variable.getInitialExpression());
+            }
+            this.hasUnresolvedImages = modelExtractor.hasUnresolvedImages();
+        }
+    }
+
+    private WorkspaceIndex() {  // Prevent initialization
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for storing and reclaiming image payloads off-heap.
+ */
+public class ImagePayloadArenaTest {
+    private static final int CONTENT_LENGTH = 1024 * 1024;
+    private static final int RELEASED_CONTENTS_COUNT = 16;
+    private static final long RECLAIM_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Test
+    public void testEqualContentsStoredOnce() {
+        ImagePayloadArena arena = new ImagePayloadArena();
+        long handle = arena.store("{\"gatewayHost\":\"hello.com\"}");
+        long otherHandle = arena.store("{\"org\":\"wso2\"}");
+
+        Assert.assertEquals(handle, arena.store("{\"gatewayHost\":\"hello.com\"}"));
+        Assert.assertNotEquals(handle, otherHandle);
+        Assert.assertEquals("{\"gatewayHost\":\"hello.com\"}", arena.read(handle));
+        Assert.assertEquals("{\"org\":\"wso2\"}", arena.read(otherHandle));
+    }
+
+    @Test
+    public void testReclaimContentsOfCollectedOwners() throws InterruptedException {
+        ImagePayloadArena arena = new ImagePayloadArena();
+        Object liveOwner = new Object();
+        long liveHandle = arena.store("{\"org\":\"wso2\"}");
+        arena.releaseWhenCollected(liveOwner, liveHandle);
+        for (int i = 0; i < RELEASED_CONTENTS_COUNT; i++) {
+            arena.releaseWhenCollected(new Object(), arena.store(createContent(i)));
+        }
+
+        // The released contents are reclaimed by the stores after their owners are collected
+        long maxAllocatedBytes = (long) RELEASED_CONTENTS_COUNT * CONTENT_LENGTH / 2;
+        long reclaimDeadline = System.currentTimeMillis() + RECLAIM_TIMEOUT_MILLIS;
+        while (arena.getAllocatedBytes() > maxAllocatedBytes && System.currentTimeMillis() < reclaimDeadline) {
+            System.gc();
+            Thread.sleep(10);
+            arena.store("{\"gatewayHost\":\"hello.com\"}");
+        }
+        Assert.assertTrue("Released contents were not reclaimed, " + arena.getAllocatedBytes() + " bytes allocated",
+                arena.getAllocatedBytes() <= maxAllocatedBytes);
+        Assert.assertEquals("{\"org\":\"wso2\"}", arena.read(liveHandle));
+        Assert.assertNotNull(liveOwner);
+    }
+
+    private static String createContent(int seed) {
+        Random random = new Random(seed);
+        char[] content = new char[CONTENT_LENGTH];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(content);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Benchmark comparing the streaming image payload parsers with the reflective Gson binding they replaced.
+ *
+ * The first parse in a fresh JVM is reported as the cold time and the average of the subsequent parses as the warm
+ * time. Run each mode in a separate JVM to get comparable cold times, for example
+ * {@code java -cp <test classpath> io.cellery.tooling.ballerina.langserver.plugins.images.ImagePayloadParserBenchmark
+ * streaming 200000}.
+ */
+public class ImagePayloadParserBenchmark {
+    private static final String REFLECTIVE_MODE = "reflective";
+    private static final String STREAMING_MODE = "streaming";
+    private static final int DEFAULT_ITERATIONS = 200000;
+    private static final int COMPONENTS_COUNT = 20;
+    private static final int REFERENCE_KEYS_COUNT = 50;
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : STREAMING_MODE;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        if (!REFLECTIVE_MODE.equals(mode) && !STREAMING_MODE.equals(mode)) {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", expected " + REFLECTIVE_MODE + " or "
+                    + STREAMING_MODE);
+        }
+        String metadataJson = createMetadataJson();
+        String referenceJson = createReferenceJson();
+        Parser parser = REFLECTIVE_MODE.equals(mode) ? new ReflectiveParser() : new StreamingParser();
+
+        long coldStartTime = System.nanoTime();
+        parser.parse(referenceJson, metadataJson);
+        long coldTime = System.nanoTime() - coldStartTime;
+
+        long warmStartTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parser.parse(referenceJson, metadataJson);
+        }
+        long warmTime = System.nanoTime() - warmStartTime;
+
+        System.out.printf("%s: cold %.2f ms, warm %.2f us per parse (%d iterations)%n", mode,
+                coldTime / 1_000_000.0, warmTime / 1_000.0 / iterations, iterations);
+    }
+
+    /**
+     * Create the metadata JSON of a Cell with components carrying the fields the plugin does not read as well.
+     *
+     * @return The metadata JSON
+     */
+    private static String createMetadataJson() {
+        StringBuilder metadataJson = new StringBuilder("{\"org\":\"wso2\",\"name\":\"employee\",\"ver\":\"1.0.0\","
+                + "\"kind\":\"Cell\",\"components\":{");
+        for (int i = 0; i < COMPONENTS_COUNT; i++) {
+            if (i > 0) {
+                metadataJson.append(',');
+            }
+            metadataJson.append("\"component").append(i).append("\":{\"dockerImage\":\"wso2/component").append(i)
+                    .append(":1.0.0\",\"ingressTypes\":[\"HTTP\",\"WEB\"],\"labels\":{\"team\":\"hr\"},")
+                    .append("\"dependencies\":{\"cells\":{},\"composites\":{},\"components\":[\"component0\"]}}");
+        }
+        metadataJson.append("},\"buildTimestamp\":1570000000,\"zeroScalingRequired\":false,")
+                .append("\"autoScalingRequired\":true}");
+        return metadataJson.toString();
+    }
+
+    /**
+     * Create the reference JSON of an image.
+     *
+     * @return The reference JSON
+     */
+    private static String createReferenceJson() {
+        StringBuilder referenceJson = new StringBuilder("{");
+        for (int i = 0; i < REFERENCE_KEYS_COUNT; i++) {
+            if (i > 0) {
+                referenceJson.append(',');
+            }
+            referenceJson.append("\"key").append(i).append("_api_url\":\"http://component").append(i)
+                    .append(":80/api\"");
+        }
+        return referenceJson.append('}').toString();
+    }
+
+    /**
+     * Parser of the reference and metadata JSON of an image.
+     */
+    private interface Parser {
+        void parse(String referenceJson, String metadataJson) throws IOException;
+    }
+
+    /**
+     * Reflective Gson binding used before the streaming parsers.
+     */
+    private static class ReflectiveParser implements Parser {
+        private final Gson gson = new Gson();
+        private final Type referenceKeysType = new TypeToken<Map<String, String>>() {
+        }.getType();
+
+        @Override
+        public void parse(String referenceJson, String metadataJson) {
+            gson.fromJson(referenceJson, referenceKeysType);
+            gson.fromJson(metadataJson, Metadata.class);
+        }
+    }
+
+    /**
+     * Streaming parsers used by the image manager.
+     */
+    private static class StreamingParser implements Parser {
+        @Override
+        public void parse(String referenceJson, String metadataJson) throws IOException {
+            ImagePayloadParser.parseReferenceKeys(referenceJson, UnaryOperator.identity());
+            ImagePayloadParser.parseMetadata(metadataJson, UnaryOperator.identity());
+        }
+    }
+}
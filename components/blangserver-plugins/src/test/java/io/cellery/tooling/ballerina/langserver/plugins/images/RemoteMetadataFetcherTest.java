@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.images;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for fetching image metadata from a remote registry using HTTP range requests.
+ */
+public class RemoteMetadataFetcherTest {
+    private static final String ORG_NAME = "wso2";
+    private static final String IMAGE_NAME = "hello";
+    private static final String VERSION = "1.0.0";
+    private static final String IMAGE_PATH = "/" + ORG_NAME + "/" + IMAGE_NAME + "/" + VERSION + ".zip";
+    private static final String REFERENCE_JSON = "{\"gatewayHost\":\"hello.com\"}";
+    private static final String METADATA_JSON = "{\"org\":\"wso2\",\"name\":\"hello\",\"ver\":\"1.0.0\"}";
+    private static final List<String> ENTRY_NAMES = Arrays.asList(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY,
+            Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY);
+    // Larger than the tail read by the fetcher, so that reading the entire image is noticed
+    private static final int ARTIFACT_SIZE = 256 * 1024;
+
+    private final AtomicLong servedBytes = new AtomicLong();
+    private HttpServer server;
+    private byte[] imageZip;
+    private boolean isRangeSupported;
+
+    @Before
+    public void setUp() throws IOException {
+        imageZip = createImageZip();
+        isRangeSupported = true;
+        servedBytes.set(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handleRequest);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFetchWithRangeRequests() throws IOException {
+        Map<String, String> entries = createFetcher().fetch(ORG_NAME, IMAGE_NAME, VERSION, ENTRY_NAMES);
+
+        Assert.assertEquals(REFERENCE_JSON, entries.get(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY));
+        Assert.assertEquals(METADATA_JSON, entries.get(Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY));
+        Assert.assertTrue("Served " + servedBytes.get() + " bytes of a " + imageZip.length + " bytes image",
+                servedBytes.get() < imageZip.length / 2);
+    }
+
+    @Test
+    public void testFetchWithoutRangeSupport() {
+        isRangeSupported = false;
+        try {
+            createFetcher().fetch(ORG_NAME, IMAGE_NAME, VERSION, ENTRY_NAMES);
+            Assert.fail("Fetched the entries from a server which does not support range requests");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("failed with status 200"));
+        }
+    }
+
+    @Test
+    public void testFetchWithTruncatedCentralDirectory() {
+        imageZip = truncateCentralDirectory(imageZip);
+        try {
+            createFetcher().fetch(ORG_NAME, IMAGE_NAME, VERSION, ENTRY_NAMES);
+            Assert.fail("Fetched the entries from an image with a truncated central directory");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated central directory"));
+        }
+    }
+
+    private RemoteMetadataFetcher createFetcher() {
+        return new RemoteMetadataFetcher("http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/%s/%s/%s.zip");
+    }
+
+    /**
+     * Serve the image zip, honouring single byte range requests if range requests are supported.
+     *
+     * @param exchange The HTTP exchange
+     * @throws IOException If writing the response failed
+     */
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        try {
+            if (!IMAGE_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int first = 0;
+            int last = imageZip.length - 1;
+            int status = HttpURLConnection.HTTP_OK;
+            if (isRangeSupported && range != null && range.startsWith("bytes=")) {
+                String[] bounds = range.substring(6).split("-", -1);
+                if (bounds[0].isEmpty()) {
+                    first = Math.max(0, imageZip.length - Integer.parseInt(bounds[1]));
+                } else {
+                    first = Integer.parseInt(bounds[0]);
+                    if (!bounds[1].isEmpty()) {
+                        last = Math.min(last, Integer.parseInt(bounds[1]));
+                    }
+                }
+                if (first > last) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + imageZip.length);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + first + "-" + last + "/"
+                        + imageZip.length);
+                status = HttpURLConnection.HTTP_PARTIAL;
+            }
+            int length = last - first + 1;
+            exchange.sendResponseHeaders(status, length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(imageZip, first, length);
+            }
+            servedBytes.addAndGet(length);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Create an image zip with a large stored artifact followed by the deflated and stored metadata entries.
+     *
+     * @return The content of the zip
+     * @throws IOException If writing the zip failed
+     */
+    private static byte[] createImageZip() throws IOException {
+        byte[] artifact = new byte[ARTIFACT_SIZE];
+        new Random(0).nextBytes(artifact);
+        ByteArrayOutputStream zipContent = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipContent)) {
+            putStoredEntry(zipOutputStream, "artifacts/cellery/artifact.bin", artifact);
+            zipOutputStream.putNextEntry(new ZipEntry(Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY));
+            zipOutputStream.write(REFERENCE_JSON.getBytes(StandardCharsets.UTF_8));
+            zipOutputStream.closeEntry();
+            putStoredEntry(zipOutputStream, Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY,
+                    METADATA_JSON.getBytes(StandardCharsets.UTF_8));
+        }
+        return zipContent.toByteArray();
+    }
+
+    private static void putStoredEntry(ZipOutputStream zipOutputStream, String name, byte[] content)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry zipEntry = new ZipEntry(name);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(content.length);
+        zipEntry.setCrc(crc.getValue());
+        zipOutputStream.putNextEntry(zipEntry);
+        zipOutputStream.write(content);
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * Drop the second half of the central directory, keeping the end of central directory record as it is.
+     *
+     * @param zip The content of the zip
+     * @return The content of the truncated zip
+     */
+    private static byte[] truncateCentralDirectory(byte[] zip) {
+        int endOfCentralDirectoryOffset = zip.length - 22;
+        ByteBuffer buffer = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(0x06054b50, buffer.getInt(endOfCentralDirectoryOffset));
+        int centralDirectorySize = buffer.getInt(endOfCentralDirectoryOffset + 12);
+        int truncatedLength = centralDirectorySize / 2;
+
+        byte[] truncatedZip = new byte[zip.length - truncatedLength];
+        System.arraycopy(zip, 0, truncatedZip, 0, endOfCentralDirectoryOffset - truncatedLength);
+        System.arraycopy(zip, endOfCentralDirectoryOffset, truncatedZip, endOfCentralDirectoryOffset - truncatedLength,
+                zip.length - endOfCentralDirectoryOffset);
+        return truncatedZip;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.cellery.tooling.ballerina.langserver.plugins.metrics;
+
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for the allocation budget of the completion metrics.
+ *
+ * The metrics are enabled and the allocation budget is set by the surefire configuration of the module.
+ */
+public class CompletionMetricsTest {
+    private static final long ALLOCATION_BUDGET = Long.getLong(Constants.SystemProperties.METRICS_ALLOCATION_BUDGET,
+            0);
+    private static final int ALLOCATION_CHUNK_SIZE = 1024 * 1024;
+
+    @BeforeClass
+    public static void setUp() {
+        Assume.assumeTrue("Completion metrics are not enabled",
+                Boolean.getBoolean(Constants.SystemProperties.METRICS_ENABLED));
+        Assume.assumeTrue("Completion allocation budget is not set", ALLOCATION_BUDGET > 0);
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Allocation measurement is not supported by the JVM",
+                threadMXBean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled());
+    }
+
+    @Test
+    public void testRequestWithinBudget() {
+        String provider = "testRequestWithinBudget";
+        CompletionMetrics.Sample sample = CompletionMetrics.start(provider);
+        Assert.assertSame(sample, CompletionMetrics.getCurrentSample());
+        allocate(ALLOCATION_CHUNK_SIZE);
+        sample.stop();
+        Assert.assertNotSame(sample, CompletionMetrics.getCurrentSample());
+
+        CompletionMetrics.Summary summary = CompletionMetrics.getSummaries().get(provider);
+        Assert.assertEquals(1, summary.getRequestsCount());
+        Assert.assertEquals(0, summary.getOverBudgetRequestsCount());
+    }
+
+    @Test
+    public void testRequestOverBudget() {
+        String provider = "testRequestOverBudget";
+        CompletionMetrics.Sample sample = CompletionMetrics.start(provider);
+        allocate(ALLOCATION_BUDGET * 2);
+        sample.stop();
+
+        CompletionMetrics.Summary summary = CompletionMetrics.getSummaries().get(provider);
+        Assert.assertEquals(1, summary.getOverBudgetRequestsCount());
+    }
+
+    @Test
+    public void testExecutorAllocationAttributedToRequest() throws Exception {
+        String provider = "testExecutorAllocationAttributedToRequest";
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletionMetrics.Sample sample = CompletionMetrics.start(provider);
+            executor.submit(() -> sample.attribute(() -> allocate(ALLOCATION_BUDGET * 2))).get();
+            sample.stop();
+        } finally {
+            executor.shutdown();
+        }
+
+        CompletionMetrics.Summary summary = CompletionMetrics.getSummaries().get(provider);
+        Assert.assertEquals(1, summary.getOverBudgetRequestsCount());
+        Assert.assertTrue(summary.getAllocationPercentiles()[0] >= ALLOCATION_BUDGET * 2);
+    }
+
+    /**
+     * Allocate memory in chunks which are kept until all of them are allocated.
+     *
+     * @param bytes The minimum number of bytes to be allocated
+     * @return The number of bytes in the allocated chunks
+     */
+    private static long allocate(long bytes) {
+        List<byte[]> chunks = new ArrayList<>();
+        long allocatedBytes = 0;
+        while (allocatedBytes < bytes) {
+            byte[] chunk = new byte[ALLOCATION_CHUNK_SIZE];
+            chunks.add(chunk);
+            allocatedBytes += chunk.length;
+        }
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import com.google.gson.Gson;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recorded completion session over a single Cellery document.
+ *
+ * A session is a sequence of steps moving the cursor, typing text at the cursor and requesting completions at the
+ * cursor, the same way an editor would while the user types. Sessions are loaded from JSON resources which refer to
+ * the initial content of the document as another resource.
+ */
+class CompletionSession {
+    private String name;
+    private String document;
+    private List<Step> steps;
+
+    /**
+     * Load a session from the test resources.
+     *
+     * @param resource The path of the session resource
+     * @return The loaded session
+     * @throws IOException If reading the session failed
+     */
+    static CompletionSession load(String resource) throws IOException {
+        try (InputStream inputStream = getResource(resource);
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, CompletionSession.class);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Read the initial content of the document of the session.
+     *
+     * @return The initial content of the document
+     * @throws IOException If reading the document failed
+     */
+    String readDocument() throws IOException {
+        try (InputStream inputStream = getResource(document)) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    List<Step> getSteps() {
+        return steps == null ? Collections.emptyList() : steps;
+    }
+
+    private static InputStream getResource(String resource) throws IOException {
+        InputStream inputStream = CompletionSession.class.getClassLoader().getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IOException("Test resource " + resource + " not found");
+        }
+        return inputStream;
+    }
+
+    /**
+     * A single step of a recorded session.
+     */
+    static class Step {
+        private Action action;
+        private int line;
+        private int character;
+        private String text;
+        private List<String> expectedLabels;
+        private List<String> unexpectedLabels;
+
+        Action getAction() {
+            return action;
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        int getCharacter() {
+            return character;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        List<String> getExpectedLabels() {
+            return expectedLabels == null ? Collections.emptyList() : expectedLabels;
+        }
+
+        List<String> getUnexpectedLabels() {
+            return unexpectedLabels == null ? Collections.emptyList() : unexpectedLabels;
+        }
+    }
+
+    /**
+     * Actions which can be recorded in a session.
+     */
+    enum Action {
+        MOVE, TYPE, COMPLETE
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+import io.cellery.tooling.ballerina.langserver.plugins.completions.providers.CelleryRecordLiteralScopeProvider;
+import io.cellery.tooling.ballerina.langserver.plugins.completions.providers.CelleryStatementContextProvider;
+import io.cellery.tooling.ballerina.langserver.plugins.completions.providers.CelleryTopLevelScopeProvider;
+import io.cellery.tooling.ballerina.langserver.plugins.metrics.CompletionMetrics;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the recorded completion sessions against the Cellery completion providers.
+ *
+ * The sessions are replayed with a synthetic local repository and a stub pull command set up by the surefire
+ * configuration of the module, which also sets the allocation budget each completion request should stay within.
+ * The sessions cover all the Cellery completion providers, so that each of them is checked against the budget.
+ * Replaying requires a Ballerina distribution with the Cellery module, given using the ballerina.home system property
+ * (defaults to the BALLERINA_HOME environment variable), and the test fails if it is not available.
+ */
+public class CompletionSessionReplayTest {
+    private static final Logger logger = LoggerFactory.getLogger(CompletionSessionReplayTest.class);
+    private static final String BALLERINA_HOME_PROPERTY = "ballerina.home";
+    private static final String REPLAY_DIRECTORY_PROPERTY = "cellery.replay.directory";
+    private static final String[] SESSION_RESOURCES = {"sessions/employee-dependencies.json",
+            "sessions/employee-references.json"};
+    private static final List<Class<?>> CELLERY_COMPLETION_PROVIDERS = Arrays.asList(
+            CelleryStatementContextProvider.class, CelleryRecordLiteralScopeProvider.class,
+            CelleryTopLevelScopeProvider.class);
+    private static final String PULLED_IMAGE_FQN = "myorg/payroll:1.0.0";
+    private static final long PULL_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static SyntheticRegistry registry;
+    private static CompletionSessionReplayer replayer;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        String ballerinaHome = System.getProperty(BALLERINA_HOME_PROPERTY);
+        Assert.assertTrue("Replaying completion sessions requires " + BALLERINA_HOME_PROPERTY
+                        + " to be a Ballerina distribution with the Cellery module, but it is " + ballerinaHome,
+                ballerinaHome != null && new File(ballerinaHome).isDirectory());
+        Assert.assertNotNull("Replaying completion sessions requires " + REPLAY_DIRECTORY_PROPERTY,
+                System.getProperty(REPLAY_DIRECTORY_PROPERTY));
+        File replayDirectory = new File(System.getProperty(REPLAY_DIRECTORY_PROPERTY));
+
+        SyntheticRegistry localRepo = new SyntheticRegistry(new File(Constants.LOCAL_REPO_DIRECTORY));
+        localRepo.addImage("myorg/hr:1.0.0", Constants.ImageKind.Cell, Collections.singletonList("hr"),
+                Arrays.asList("hr_api_url", "hr_ingress_port"));
+        localRepo.addImage("myorg/stock:1.0.0", Constants.ImageKind.Cell, Arrays.asList("stock", "inventory"),
+                Collections.singletonList("stock_api_url"));
+        localRepo.addImage("myorg/gateway:1.0.0", Constants.ImageKind.Composite, Collections.singletonList("proxy"),
+                Collections.singletonList("proxy_api_url"));
+        registry = new SyntheticRegistry(new File(replayDirectory, "registry"));
+        registry.addImage(PULLED_IMAGE_FQN, Constants.ImageKind.Cell, Collections.singletonList("payroll"),
+                Collections.singletonList("payroll_api_url"));
+
+        File workspaceDirectory = new File(replayDirectory, "workspace");
+        Assert.assertTrue(workspaceDirectory.isDirectory() || workspaceDirectory.mkdirs());
+        replayer = new CompletionSessionReplayer(workspaceDirectory);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if (replayer != null) {
+            replayer.close();
+        }
+    }
+
+    @Test
+    public void testReplaySessions() throws Exception {
+        for (String sessionResource : SESSION_RESOURCES) {
+            ReplayReport report = replayer.replay(CompletionSession.load(sessionResource));
+            logger.info("Replayed " + sessionResource + " - " + report);
+            Assert.assertTrue(report.getFailures().toString(), report.getFailures().isEmpty());
+        }
+        Map<String, CompletionMetrics.Summary> summaries = CompletionMetrics.getSummaries();
+        for (Class<?> provider : CELLERY_COMPLETION_PROVIDERS) {
+            CompletionMetrics.Summary summary = summaries.get(provider.getSimpleName());
+            Assert.assertNotNull(provider.getSimpleName() + " did not serve any completion requests", summary);
+            logger.info("Cellery completion metrics of " + provider.getSimpleName() + " - " + summary);
+            Assert.assertEquals(provider.getSimpleName() + " exceeded the completion allocation budget", 0,
+                    summary.getOverBudgetRequestsCount());
+        }
+
+        // The dependency added in the session is missing in the local repository and should be pulled
+        long pullDeadline = System.currentTimeMillis() + PULL_TIMEOUT_MILLIS;
+        while (!registry.getPulledImages().contains(PULLED_IMAGE_FQN) && System.currentTimeMillis() < pullDeadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(Collections.singletonList(PULLED_IMAGE_FQN), registry.getPulledImages());
+    }
+}
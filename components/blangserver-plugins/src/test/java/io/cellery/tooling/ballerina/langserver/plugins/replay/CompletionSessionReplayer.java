@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import org.ballerinalang.langserver.BallerinaLanguageServer;
+import org.ballerinalang.langserver.client.ExtendedLanguageClient;
+import org.eclipse.lsp4j.ClientCapabilities;
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionList;
+import org.eclipse.lsp4j.CompletionParams;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidCloseTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.InitializeParams;
+import org.eclipse.lsp4j.InitializedParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.services.TextDocumentService;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Replays recorded completion sessions against an in-process Ballerina language server.
+ *
+ * The language server loads the Cellery completion providers the same way it does in an editor, so that a replay
+ * covers the whole completion path of the plugin. The latency of each completion request is measured as seen by the
+ * client, and the allocation of each request is measured over all the threads of the JVM, so that the work done on
+ * the executors of the language server and the plugin is included.
+ */
+class CompletionSessionReplayer implements AutoCloseable {
+    private static final String BALLERINA_LANGUAGE_ID = "ballerina";
+
+    private final File workspaceDirectory;
+    private final BallerinaLanguageServer languageServer;
+    private final TextDocumentService textDocumentService;
+
+    CompletionSessionReplayer(File workspaceDirectory) throws InterruptedException, ExecutionException {
+        this.workspaceDirectory = workspaceDirectory;
+        this.languageServer = new BallerinaLanguageServer();
+        this.languageServer.connect(createNoOpClient());
+        InitializeParams initializeParams = new InitializeParams();
+        initializeParams.setRootUri(workspaceDirectory.toURI().toString());
+        initializeParams.setCapabilities(new ClientCapabilities());
+        this.languageServer.initialize(initializeParams).get();
+        this.languageServer.initialized(new InitializedParams());
+        this.textDocumentService = this.languageServer.getTextDocumentService();
+    }
+
+    /**
+     * Replay a session.
+     *
+     * The document of the session is written to the workspace, opened, edited and closed the same way as an editor
+     * would.
+     *
+     * @param session The session to be replayed
+     * @return The report of the replay
+     * @throws IOException If writing the document failed
+     * @throws InterruptedException If interrupted while waiting for a completion response
+     * @throws ExecutionException If a completion request failed
+     */
+    ReplayReport replay(CompletionSession session) throws IOException, InterruptedException, ExecutionException {
+        File documentFile = new File(workspaceDirectory, session.getName() + ".bal");
+        StringBuilder documentContent = new StringBuilder(session.readDocument());
+        Files.write(documentFile.toPath(), documentContent.toString().getBytes(StandardCharsets.UTF_8));
+        String documentUri = documentFile.toURI().toString();
+        int documentVersion = 1;
+        textDocumentService.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(documentUri,
+                BALLERINA_LANGUAGE_ID, documentVersion, documentContent.toString())));
+
+        ReplayReport report = new ReplayReport(session.getName());
+        Position cursor = new Position(0, 0);
+        for (CompletionSession.Step step : session.getSteps()) {
+            switch (step.getAction()) {
+                case MOVE:
+                    cursor = new Position(step.getLine(), step.getCharacter());
+                    break;
+                case TYPE:
+                    cursor = insertText(documentContent, cursor, step.getText());
+                    documentVersion++;
+                    textDocumentService.didChange(new DidChangeTextDocumentParams(
+                            new VersionedTextDocumentIdentifier(documentUri, documentVersion),
+                            Collections.singletonList(new TextDocumentContentChangeEvent(
+                                    documentContent.toString()))));
+                    break;
+                case COMPLETE:
+                    complete(documentUri, cursor, step, report);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown action " + step.getAction());
+            }
+        }
+        textDocumentService.didClose(new DidCloseTextDocumentParams(new TextDocumentIdentifier(documentUri)));
+        return report;
+    }
+
+    /**
+     * Request completions at the cursor and record the request in the report.
+     *
+     * @param documentUri The URI of the document
+     * @param cursor The position of the cursor
+     * @param step The completion step
+     * @param report The report of the replay
+     * @throws InterruptedException If interrupted while waiting for the completion response
+     * @throws ExecutionException If the completion request failed
+     */
+    private void complete(String documentUri, Position cursor, CompletionSession.Step step, ReplayReport report)
+            throws InterruptedException, ExecutionException {
+        CompletionParams completionParams = new CompletionParams(new TextDocumentIdentifier(documentUri),
+                new Position(cursor.getLine(), cursor.getCharacter()));
+        long startAllocatedBytes = getAllocatedBytesOfAllThreads();
+        long startTime = System.nanoTime();
+        Either<List<CompletionItem>, CompletionList> response = textDocumentService.completion(completionParams)
+                .get();
+        long latency = System.nanoTime() - startTime;
+        long allocatedBytes = startAllocatedBytes < 0 ? -1 : getAllocatedBytesOfAllThreads() - startAllocatedBytes;
+
+        List<CompletionItem> completionItems = response.isLeft() ? response.getLeft() : response.getRight().getItems();
+        Set<String> labels = new HashSet<>();
+        for (CompletionItem completionItem : completionItems) {
+            labels.add(completionItem.getLabel());
+        }
+        List<String> failures = new ArrayList<>();
+        for (String expectedLabel : step.getExpectedLabels()) {
+            if (!labels.contains(expectedLabel)) {
+                failures.add("missing " + expectedLabel + " at " + cursor.getLine() + ":" + cursor.getCharacter());
+            }
+        }
+        for (String unexpectedLabel : step.getUnexpectedLabels()) {
+            if (labels.contains(unexpectedLabel)) {
+                failures.add("unexpected " + unexpectedLabel + " at " + cursor.getLine() + ":"
+                        + cursor.getCharacter());
+            }
+        }
+        report.record(latency, allocatedBytes, failures);
+    }
+
+    /**
+     * Insert text at the cursor.
+     *
+     * @param documentContent The content of the document
+     * @param cursor The position of the cursor
+     * @param text The text to be inserted
+     * @return The position of the cursor after the inserted text
+     */
+    private static Position insertText(StringBuilder documentContent, Position cursor, String text) {
+        int offset = 0;
+        for (int line = 0; line < cursor.getLine(); line++) {
+            offset = documentContent.indexOf("\n", offset) + 1;
+        }
+        documentContent.insert(offset + cursor.getCharacter(), text);
+        int lastNewLineIndex = text.lastIndexOf('\n');
+        int insertedLinesCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                insertedLinesCount++;
+            }
+        }
+        return lastNewLineIndex == -1
+                ? new Position(cursor.getLine(), cursor.getCharacter() + text.length())
+                : new Position(cursor.getLine() + insertedLinesCount, text.length() - lastNewLineIndex - 1);
+    }
+
+    /**
+     * Get the number of bytes allocated by all the live threads of the JVM.
+     *
+     * Threads which terminated while a request was being served are not accounted.
+     *
+     * @return The allocated bytes or -1 if allocation measurement is not supported by the JVM
+     */
+    private static long getAllocatedBytesOfAllThreads() {
+        long allocatedBytes = -1;
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported()
+                    && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                allocatedBytes = 0;
+                for (long threadAllocatedBytes
+                        : sunThreadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+                    if (threadAllocatedBytes > 0) {
+                        allocatedBytes += threadAllocatedBytes;
+                    }
+                }
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Create a language client which ignores the diagnostics and the other notifications of the language server.
+     *
+     * @return The language client
+     */
+    private static ExtendedLanguageClient createNoOpClient() {
+        return (ExtendedLanguageClient) Proxy.newProxyInstance(ExtendedLanguageClient.class.getClassLoader(),
+                new Class<?>[]{ExtendedLanguageClient.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "NoOpLanguageClient";
+                        default:
+                            return CompletableFuture.class.equals(method.getReturnType())
+                                    ? CompletableFuture.completedFuture(null)
+                                    : null;
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws ExecutionException {
+        try {
+            languageServer.shutdown().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latency and allocation of the completion requests of a replayed session.
+ */
+class ReplayReport {
+    private final String sessionName;
+    private final List<Long> latencies;
+    private final List<Long> allocations;
+    private final List<String> failures;
+
+    ReplayReport(String sessionName) {
+        this.sessionName = sessionName;
+        this.latencies = new ArrayList<>();
+        this.allocations = new ArrayList<>();
+        this.failures = new ArrayList<>();
+    }
+
+    /**
+     * Record a completion request.
+     *
+     * @param latency The latency of the request in nanoseconds
+     * @param allocatedBytes The bytes allocated while serving the request (-1 if not supported by the JVM)
+     * @param requestFailures The expectations of the session which were not met by the response
+     */
+    void record(long latency, long allocatedBytes, List<String> requestFailures) {
+        latencies.add(latency);
+        allocations.add(allocatedBytes);
+        failures.addAll(requestFailures);
+    }
+
+    int getRequestsCount() {
+        return latencies.size();
+    }
+
+    List<String> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Get the p50, p95 and p99 latencies.
+     *
+     * @return The latency percentiles in nanoseconds
+     */
+    long[] getLatencyPercentiles() {
+        return percentiles(latencies);
+    }
+
+    /**
+     * Get the p50, p95 and p99 allocations.
+     *
+     * @return The allocation percentiles in bytes (-1 if not supported by the JVM)
+     */
+    long[] getAllocationPercentiles() {
+        return percentiles(allocations);
+    }
+
+    private static long[] percentiles(List<Long> samples) {
+        long[] sortedSamples = new long[samples.size()];
+        for (int i = 0; i < sortedSamples.length; i++) {
+            sortedSamples[i] = samples.get(i);
+        }
+        Arrays.sort(sortedSamples);
+        long[] percentiles = new long[3];
+        if (sortedSamples.length > 0) {
+            percentiles[0] = sortedSamples[(int) Math.ceil(sortedSamples.length * 0.50) - 1];
+            percentiles[1] = sortedSamples[(int) Math.ceil(sortedSamples.length * 0.95) - 1];
+            percentiles[2] = sortedSamples[(int) Math.ceil(sortedSamples.length * 0.99) - 1];
+        }
+        return percentiles;
+    }
+
+    @Override
+    public String toString() {
+        long[] latencyPercentiles = getLatencyPercentiles();
+        long[] allocationPercentiles = getAllocationPercentiles();
+        return sessionName + " - requests: " + getRequestsCount()
+                + ", latency p50/p95/p99: " + latencyPercentiles[0] / 1000 + "/" + latencyPercentiles[1] / 1000
+                + "/" + latencyPercentiles[2] / 1000 + " us"
+                + ", allocation p50/p95/p99: " + allocationPercentiles[0] + "/" + allocationPercentiles[1]
+                + "/" + allocationPercentiles[2] + " bytes";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * Stub of the cellery pull command used while replaying sessions.
+ *
+ * Images are "pulled" by copying them from a synthetic registry directory into the local repository, and every pull
+ * is recorded in the pulls log of the registry, so that sessions can be replayed without the Cellery CLI or network.
+ *
+ * This runs in a separate JVM with only the test classes in the class path and therefore should not depend on any
+ * other class at runtime.
+ */
+public class StubPullCommand {
+    static final String PULLS_LOG_FILE_NAME = "pulls.log";
+
+    /**
+     * Pull an image.
+     *
+     * @param args The registry directory, the local repository directory and the image FQN (org/name:version)
+     * @throws IOException If copying the image failed
+     */
+    public static void main(String[] args) throws IOException {
+        File registryDirectory = new File(args[0]);
+        File repoDirectory = new File(args[1]);
+        String imageFQN = args[2];
+        Files.write(new File(registryDirectory, PULLS_LOG_FILE_NAME).toPath(), Collections.singletonList(imageFQN),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        String imagePath = getImagePath(imageFQN);
+        File registryImage = new File(registryDirectory, imagePath);
+        if (!registryImage.exists()) {
+            System.err.println("Image " + imageFQN + " not found in the registry");
+            System.exit(1);
+        }
+        File repoImage = new File(repoDirectory, imagePath);
+        Files.createDirectories(repoImage.getParentFile().toPath());
+        File temporaryImage = new File(repoImage.getParentFile(), repoImage.getName() + ".tmp");
+        Files.copy(registryImage.toPath(), temporaryImage.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temporaryImage.toPath(), repoImage.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Get the path of an image relative to the registry and repository directories.
+     *
+     * @param imageFQN The fully qualified name of the image (org/name:version)
+     * @return The relative path of the image zip
+     */
+    static String getImagePath(String imageFQN) {
+        String[] imageFQNSplit = imageFQN.split("[/:]");
+        return imageFQNSplit[0] + File.separator + imageFQNSplit[1] + File.separator + imageFQNSplit[2]
+                + File.separator + imageFQNSplit[1] + Constants.CELLERY_IMAGE_EXTENSION;  // Inlined constant
+    }
+
+    private StubPullCommand() {   // Prevent initialization
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.tooling.ballerina.langserver.plugins.replay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.cellery.tooling.ballerina.langserver.plugins.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Directory of synthetic Cellery Images laid out the same way as the local repository.
+ *
+ * The images only contain the reference and metadata JSON read by the plugin.
+ */
+class SyntheticRegistry {
+    private final File directory;
+
+    SyntheticRegistry(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Add an image to the registry.
+     *
+     * @param imageFQN The fully qualified name of the image (org/name:version)
+     * @param kind The kind of the image
+     * @param components The names of the components of the image, each exposing a HTTP ingress
+     * @param referenceKeys The keys of the reference of the image
+     * @throws IOException If writing the image failed
+     */
+    void addImage(String imageFQN, Constants.ImageKind kind, List<String> components, List<String> referenceKeys)
+            throws IOException {
+        String[] imageFQNSplit = imageFQN.split("[/:]");
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("org", imageFQNSplit[0]);
+        metadata.addProperty("name", imageFQNSplit[1]);
+        metadata.addProperty("ver", imageFQNSplit[2]);
+        metadata.addProperty("kind", kind.name());
+        JsonObject componentsMetadata = new JsonObject();
+        for (String component : components) {
+            JsonArray ingressTypes = new JsonArray();
+            ingressTypes.add("HTTP");
+            JsonObject componentMetadata = new JsonObject();
+            componentMetadata.add("ingressTypes", ingressTypes);
+            componentsMetadata.add(component, componentMetadata);
+        }
+        metadata.add("components", componentsMetadata);
+        metadata.addProperty("zeroScalingRequired", false);
+        metadata.addProperty("autoScalingRequired", false);
+
+        JsonObject reference = new JsonObject();
+        for (String referenceKey : referenceKeys) {
+            reference.addProperty(referenceKey, "http://" + imageFQNSplit[1] + "--gateway-service:80");
+        }
+
+        File imageFile = new File(directory, StubPullCommand.getImagePath(imageFQN));
+        Files.createDirectories(imageFile.getParentFile().toPath());
+        try (OutputStream outputStream = Files.newOutputStream(imageFile.toPath());
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            writeZipEntry(zipOutputStream, Constants.CELLERY_IMAGE_REFERENCE_ZIP_ENTRY, reference.toString());
+            writeZipEntry(zipOutputStream, Constants.CELLERY_IMAGE_METADATA_ZIP_ENTRY, metadata.toString());
+        }
+    }
+
+    /**
+     * Get the images pulled from the registry by the stub pull command.
+     *
+     * @return The fully qualified names of the pulled images in the order they were pulled
+     * @throws IOException If reading the pulls log failed
+     */
+    List<String> getPulledImages() throws IOException {
+        File pullsLog = new File(directory, StubPullCommand.PULLS_LOG_FILE_NAME);
+        return pullsLog.exists()
+                ? Files.readAllLines(pullsLog.toPath(), StandardCharsets.UTF_8)
+                : Collections.emptyList();
+    }
+
+    private static void writeZipEntry(ZipOutputStream zipOutputStream, String name, String content)
+            throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(name));
+        zipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        zipOutputStream.closeEntry();
+    }
+}
@@ -0,0 +1,31 @@
+import celleryio/cellery;
+
+public function build(cellery:ImageName iName) returns error? {
+    cellery:Component employeeComponent = {
+        name: "employee",
+        src: {
+            image: "wso2cellery/sampleapp-employee:0.6.0"
+        },
+        ingresses: {
+            employee: <cellery:HttpApiIngress>{
+                port: 8080,
+                context: "employee",
+                expose: "local"
+            }
+        },
+        dependencies: {
+            cells: {
+                hr: "myorg/hr:1.0.0"
+            }
+        }
+    };
+    cellery:Reference hrRef = check cellery:getReference(employeeComponent, "hr");
+    
+    cellery:CellImage employeeCell = {
+        components: {
+            employeeComp: employeeComponent
+        }
+    };
+    return <@untainted> cellery:createImage(employeeCell, iName);
+}
+
@@ -0,0 +1,35 @@
+import celleryio/cellery;
+
+public function build(cellery:ImageName iName) returns error? {
+    cellery:Component employeeComponent = {
+        name: "employee",
+        src: {
+            image: "wso2cellery/sampleapp-employee:0.6.0"
+        },
+        ingresses: {
+            employee: <cellery:HttpApiIngress>{
+                port: 8080,
+                context: "employee",
+                expose: "local"
+            }
+        },
+        dependencies: {
+            cells: {
+                
+            }
+        }
+    };
+
+    cellery:CellImage employeeCell = {
+        components: {
+            employeeComp: employeeComponent
+        }
+    };
+    return <@untainted> cellery:createImage(employeeCell, iName);
+}
+
+public function run(cellery:ImageName iName, map<cellery:ImageName> instances, boolean startDependencies,
+        boolean shareDependencies) returns (cellery:InstanceState[]|error?) {
+    cellery:CellImage employeeCell = check cellery:constructCellImage(iName);
+    return <@untainted> cellery:createInstance(employeeCell, iName, instances, startDependencies, shareDependencies);
+}